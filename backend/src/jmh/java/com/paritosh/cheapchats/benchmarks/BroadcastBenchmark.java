@@ -0,0 +1,244 @@
+package com.paritosh.cheapchats.benchmarks;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+
+import com.paritosh.cheapchats.config.WebSocketProperties;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.messaging.GroupTopicPublisher;
+import com.paritosh.cheapchats.messaging.MessageBatcher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// One broadcast through the simple broker to a group with two alias topics. convertAndSend converts the dto once
+// per topic; GroupTopicPublisher encodes once and shares the byte[].
+// frames=false stops at the client outbound channel. frames=true carries on the way the server does for every
+// session: StompSubProtocolHandler encodes a STOMP frame and hands a text message to the session, which decodes it
+// to the String the container writes.
+// Run with -prof gc: gc.alloc.rate.norm is the garbage per broadcast. Encoding once saves the per-topic
+// conversions, a constant per broadcast (about 2.7KB at 40 chars, 19KB at 4000). It does not make garbage constant
+// and nothing on this path can: the broker builds a header map per subscriber, and each session copies the payload
+// into its own frame (subscription and message-id headers differ per session, and WebSocketSession takes a whole
+// message each). With frames=true the per-topic conversions are under 1% of the total.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+	private static final List<String> ALIASES = List.of("devs-old", "devs-older");
+
+	@Param({ "1", "100", "1000" })
+	private int subscribers;
+
+	// characters of message content
+	@Param({ "40", "4000" })
+	private int length;
+
+	// whether each subscriber's copy is encoded into a STOMP frame and handed to its session
+	@Param({ "false", "true" })
+	private boolean frames;
+
+	private SimpleBrokerMessageHandler broker;
+	private SimpMessagingTemplate template;
+	private GroupTopicPublisher publisher;
+	private ChatMessageDto message;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+		ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+		ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+		if (frames) {
+			StompSubProtocolHandler stompHandler = new StompSubProtocolHandler();
+			Map<String, WebSocketSession> sessions = new HashMap<>();
+			for (int i = 0; i < subscribers; i++) {
+				sessions.put("session-" + i, new SinkSession("session-" + i, blackhole));
+			}
+			clientOutbound.subscribe(sent -> stompHandler.handleMessageToClient(
+					sessions.get(SimpMessageHeaderAccessor.getSessionId(sent.getHeaders())), sent));
+		} else {
+			clientOutbound.subscribe(blackhole::consume);
+		}
+
+		broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+		broker.start();
+		for (int i = 0; i < subscribers; i++) {
+			// the broker only delivers to sessions it has seen connect
+			SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+			connect.setSessionId("session-" + i);
+			broker.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+			SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+			subscribe.setSessionId("session-" + i);
+			subscribe.setSubscriptionId("sub-0");
+			subscribe.setDestination("/topic/group/devs");
+			broker.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+		}
+
+		MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+		converter.setObjectMapper(Jackson2ObjectMapperBuilder.json().build());
+		template = new SimpMessagingTemplate(brokerChannel);
+		template.setMessageConverter(converter);
+		WebSocketProperties properties = new WebSocketProperties();
+		publisher = new GroupTopicPublisher(template, converter,
+				new MessageBatcher(template, properties, new SimpleMeterRegistry()), properties);
+
+		message = new ChatMessageDto();
+		message.setId(1_234_567L);
+		message.setSender("user-7");
+		message.setContent("x".repeat(length));
+		message.setType("CHAT");
+		message.setTimestamp(LocalDateTime.of(2025, 1, 1, 12, 0).toString());
+	}
+
+	@TearDown
+	public void tearDown() {
+		broker.stop();
+	}
+
+	@Benchmark
+	public void convertPerTopic() {
+		template.convertAndSend("/topic/group/devs", message);
+		for (String alias : ALIASES) {
+			template.convertAndSend("/topic/group/" + alias, message);
+		}
+	}
+
+	@Benchmark
+	public void preEncoded() {
+		publisher.publish("devs", ALIASES, message);
+	}
+
+	// Stands in for a connected session; getPayload() decodes the frame like the container's text path
+	private static class SinkSession implements WebSocketSession {
+
+		private final String id;
+		private final Blackhole blackhole;
+		private final Map<String, Object> attributes = new HashMap<>();
+
+		SinkSession(String id, Blackhole blackhole) {
+			this.id = id;
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) {
+			blackhole.consume(message.getPayload());
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public Map<String, Object> getAttributes() {
+			return attributes;
+		}
+
+		@Override
+		public URI getUri() {
+			return null;
+		}
+
+		@Override
+		public HttpHeaders getHandshakeHeaders() {
+			return HttpHeaders.EMPTY;
+		}
+
+		@Override
+		public Principal getPrincipal() {
+			return null;
+		}
+
+		@Override
+		public InetSocketAddress getLocalAddress() {
+			return null;
+		}
+
+		@Override
+		public InetSocketAddress getRemoteAddress() {
+			return null;
+		}
+
+		@Override
+		public String getAcceptedProtocol() {
+			return "v12.stomp";
+		}
+
+		@Override
+		public void setTextMessageSizeLimit(int messageSizeLimit) {
+		}
+
+		@Override
+		public int getTextMessageSizeLimit() {
+			return Integer.MAX_VALUE;
+		}
+
+		@Override
+		public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+		}
+
+		@Override
+		public int getBinaryMessageSizeLimit() {
+			return Integer.MAX_VALUE;
+		}
+
+		@Override
+		public List<WebSocketExtension> getExtensions() {
+			return List.of();
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public void close(CloseStatus status) {
+		}
+
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.paritosh.cheapchats.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.paritosh.cheapchats.App;
+import com.paritosh.cheapchats.models.ChatGroup;
+import com.paritosh.cheapchats.services.GroupService;
+
+// GroupService against a real Postgres (Testcontainers, needs Docker) with the whole application context
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupOperationsBenchmark {
+
+	private static final String MEMBER = "bench-user";
+	private static final String VISITOR = "bench-visitor";
+
+	// groups the benchmark user belongs to
+	@Param({ "10", "100" })
+	private int groupsPerUser;
+
+	// history carried along by each rename
+	@Param({ "1000" })
+	private int messagesPerGroup;
+
+	private PostgreSQLContainer<?> postgres;
+	private ConfigurableApplicationContext context;
+	private GroupService groupService;
+
+	private String renameFrom = "rename-a";
+	private String renameTo = "rename-b";
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+		postgres.start();
+
+		context = new SpringApplicationBuilder(App.class)
+				.profiles("DEV")
+				.properties(
+						"spring.datasource.url=" + postgres.getJdbcUrl(),
+						"spring.datasource.username=" + postgres.getUsername(),
+						"spring.datasource.password=" + postgres.getPassword(),
+						"spring.jpa.show-sql=false",
+						"server.port=0",
+						"logging.level.com.paritosh.cheapchats=WARN")
+				.run();
+		groupService = context.getBean(GroupService.class);
+
+		for (int i = 0; i < groupsPerUser; i++) {
+			groupService.createChatGroup("group-" + i, MEMBER, 600);
+		}
+		groupService.createChatGroup(renameFrom, MEMBER, 600);
+
+		context.getBean(JdbcTemplate.class).update("INSERT INTO chat_message (id, group_name, sender, content, timestamp, type) "
+				+ "SELECT nextval('chat_message_seq'), ?, ?, 'seeded message ' || n, now(), 'CHAT' "
+				+ "FROM generate_series(1, ?) n", renameFrom, MEMBER, messagesPerGroup);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+		postgres.stop();
+	}
+
+	@Benchmark
+	public List<ChatGroup> getGroupsForUser() {
+		return groupService.getGroupsForUser(MEMBER);
+	}
+
+	@Benchmark
+	public boolean joinAndLeave() {
+		groupService.joinChatGroup("group-0", VISITOR);
+		return groupService.leaveChatGroup("group-0", VISITOR);
+	}
+
+	// renames back and forth, every call moves the group, its members and its messages
+	@Benchmark
+	public boolean rename() {
+		boolean renamed = groupService.updateGroupInfo(renameFrom, renameTo, null);
+		String previous = renameFrom;
+		renameFrom = renameTo;
+		renameTo = previous;
+		return renamed;
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.paritosh.cheapchats.benchmarks;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.messaging.CompactMessageCodec;
+
+// One broadcast payload as JSON vs the compact binary layout, encode and decode.
+// Payload sizes are printed at setup; add "-prof gc" to jmh.args for allocation per op.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+	// characters of message content
+	@Param({ "40", "400" })
+	private int length;
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+	private ChatMessageDto message;
+	private byte[] json;
+	private byte[] compact;
+
+	@Setup
+	public void setUp() throws JsonProcessingException {
+		message = new ChatMessageDto();
+		message.setId(1_234_567L);
+		message.setSender("user-7");
+		message.setContent("x".repeat(length));
+		message.setType("CHAT");
+		message.setTimestamp(LocalDateTime.of(2025, 1, 1, 12, 0, 0, 123_000_000).toString());
+
+		json = objectMapper.writeValueAsBytes(message);
+		compact = CompactMessageCodec.encode(message);
+		System.out.printf("%n[content %d chars] json %d bytes, compact %d bytes%n", length, json.length, compact.length);
+	}
+
+	@Benchmark
+	public byte[] encodeJson() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(message);
+	}
+
+	@Benchmark
+	public byte[] encodeCompact() {
+		return CompactMessageCodec.encode(message);
+	}
+
+	@Benchmark
+	public ChatMessageDto decodeJson() throws IOException {
+		return objectMapper.readValue(json, ChatMessageDto.class);
+	}
+
+	@Benchmark
+	public ChatMessageDto decodeCompact() {
+		return CompactMessageCodec.decode(compact);
+	}
+
+}
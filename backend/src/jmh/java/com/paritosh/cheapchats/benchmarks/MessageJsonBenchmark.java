@@ -0,0 +1,61 @@
+package com.paritosh.cheapchats.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+// Serialising a history page, sizes match the default and maximum history limits
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageJsonBenchmark {
+
+	@Param({ "50", "200" })
+	private int size;
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+	private List<ChatMessageDto> page;
+
+	@Setup
+	public void setUp() {
+		LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+		page = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			ChatMessageDto message = new ChatMessageDto();
+			message.setId((long) i);
+			message.setSender("user-" + (i % 7));
+			message.setContent("Message number " + i + " in a fairly ordinary group chat");
+			message.setType("CHAT");
+			message.setTimestamp(start.plusSeconds(i).toString());
+			page.add(message);
+		}
+	}
+
+	@Benchmark
+	public byte[] serialisePage() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(page);
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.paritosh.cheapchats.benchmarks;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.paritosh.cheapchats.controller.ChatController;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.logging.MessageLog;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+
+// Logging cost per sent message at INFO, through a real logback encoder writing to a discarding stream.
+// Allocation per message: -Djmh.args="MessageLogging -prof gc", compare gc.alloc.rate.norm (B/op).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageLoggingBenchmark {
+
+	private static final Logger LEGACY_LOG = LoggerFactory.getLogger(ChatController.class);
+
+	// groups the messages are spread over, each group is sampled on its own
+	@Param({ "1", "100" })
+	private int groups;
+
+	private final MessageLog messageLog = new MessageLog(1, 10_000);
+
+	private ChatMessageDto message;
+	private String[] groupNames;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.reset();
+
+		PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+		encoder.setContext(context);
+		encoder.setPattern("%d{ISO8601} %-5level [%thread] %logger{36} - %msg%n");
+		encoder.start();
+
+		OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+		appender.setContext(context);
+		appender.setEncoder(encoder);
+		appender.setOutputStream(OutputStream.nullOutputStream());
+		appender.start();
+
+		ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+		root.setLevel(ch.qos.logback.classic.Level.INFO);
+		root.addAppender(appender);
+
+		message = new ChatMessageDto();
+		message.setId(42L);
+		message.setSender("alice");
+		message.setContent("See you all at the standup in five minutes, bring the release notes");
+		message.setType("CHAT");
+		message.setTimestamp("2025-01-01T12:00:00.123456");
+
+		groupNames = new String[groups];
+		for (int i = 0; i < groups; i++) {
+			groupNames[i] = "group-" + i;
+		}
+	}
+
+	// what sendMessage logged before: two concatenated INFO lines with the full content
+	@Benchmark
+	public void concatenatedInfo() {
+		String groupName = nextGroup();
+		LEGACY_LOG.info("Message queued: " + message.getContent() + "; Group: " + groupName + "; ID: " + message.getId());
+		LEGACY_LOG.info("Message sent: " + message.getContent() + "; Group: " + groupName);
+	}
+
+	@Benchmark
+	public void sampledInfo() {
+		messageLog.sent(nextGroup(), message);
+	}
+
+	private String nextGroup() {
+		String groupName = groupNames[next];
+		next = next + 1 == groupNames.length ? 0 : next + 1;
+		return groupName;
+	}
+
+}
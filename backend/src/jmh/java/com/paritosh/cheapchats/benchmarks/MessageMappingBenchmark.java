@@ -0,0 +1,46 @@
+package com.paritosh.cheapchats.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.paritosh.cheapchats.controller.ChatController;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.models.ChatMessage;
+
+// The CPU-only part of sendMessage: stamping the dto and mapping it to an entity
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageMappingBenchmark {
+
+	private ChatMessageDto dto;
+
+	@Setup
+	public void setUp() {
+		dto = new ChatMessageDto();
+		dto.setSender("alice");
+		dto.setContent("See you all at the standup in five minutes");
+		dto.setType("CHAT");
+	}
+
+	@Benchmark
+	public ChatMessage stampAndMap() {
+		dto.setTimestamp(LocalDateTime.now().toString());
+		return ChatController.toEntity("devs", dto);
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.paritosh.cheapchats.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.paritosh.cheapchats.App;
+import com.paritosh.cheapchats.dto.MessageSearchPage;
+import com.paritosh.cheapchats.models.ChatMessage;
+import com.paritosh.cheapchats.repositories.ChatMessageRepository;
+import com.paritosh.cheapchats.services.MessageSearchService;
+
+// Message search over a few million rows in a real Postgres (Testcontainers, needs Docker) with the whole application context.
+// Words are drawn from a vocabulary of 10000 with a skew towards low numbers: w0..w9 each appear in 3 to 30 percent
+// of all messages (common), words past w1000 in a few dozen messages per group (rare). Seeding takes a minute or two.
+// fetchHistory is what clients had to do before: load the group's whole history and filter it themselves.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageSearchBenchmark {
+
+	private static final String GROUP = "group-0";
+	private static final int VOCABULARY = 10_000;
+	private static final int WORDS_PER_MESSAGE = 8;
+
+	@Param({ "2000000" })
+	private int messages;
+
+	// the benchmarked group holds messages / groups rows
+	@Param({ "20" })
+	private int groups;
+
+	private PostgreSQLContainer<?> postgres;
+	private ConfigurableApplicationContext context;
+	private MessageSearchService messageSearchService;
+	private ChatMessageRepository chatMessageRepository;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+		postgres.start();
+
+		context = new SpringApplicationBuilder(App.class)
+				.profiles("DEV")
+				.properties(
+						"spring.datasource.url=" + postgres.getJdbcUrl(),
+						"spring.datasource.username=" + postgres.getUsername(),
+						"spring.datasource.password=" + postgres.getPassword(),
+						"spring.jpa.show-sql=false",
+						"server.port=0",
+						"logging.level.com.paritosh.cheapchats=WARN")
+				.run();
+		messageSearchService = context.getBean(MessageSearchService.class);
+		chatMessageRepository = context.getBean(ChatMessageRepository.class);
+
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		// the subquery refers to n so Postgres draws new words for every row
+		jdbcTemplate.update("INSERT INTO chat_message (id, group_name, sender, content, timestamp, type) "
+				+ "SELECT nextval('chat_message_seq'), 'group-' || (n % ?), 'user-' || (n % 500), "
+				+ "(SELECT string_agg('w' || floor(power(random(), 3) * ?)::int, ' ') FROM generate_series(1, ?) WHERE n > 0), "
+				+ "now() - make_interval(secs => ? - n), 'CHAT' "
+				+ "FROM generate_series(1, ?) n", groups, VOCABULARY, WORDS_PER_MESSAGE, messages, messages);
+		jdbcTemplate.execute("VACUUM ANALYZE chat_message");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+		postgres.stop();
+	}
+
+	@Benchmark
+	public MessageSearchPage searchRareWord() {
+		return messageSearchService.search(GROUP, "w" + ThreadLocalRandom.current().nextInt(1000, VOCABULARY), 0, 20);
+	}
+
+	@Benchmark
+	public MessageSearchPage searchCommonWord() {
+		return messageSearchService.search(GROUP, "w" + ThreadLocalRandom.current().nextInt(10), 0, 20);
+	}
+
+	@Benchmark
+	public MessageSearchPage searchTwoWords() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return messageSearchService.search(GROUP, "w" + random.nextInt(10) + " w" + random.nextInt(1000, VOCABULARY), 0, 20);
+	}
+
+	@Benchmark
+	public List<ChatMessage> fetchHistory() {
+		return chatMessageRepository.findByGroupNameOrderByTimestampAsc(GROUP);
+	}
+
+}
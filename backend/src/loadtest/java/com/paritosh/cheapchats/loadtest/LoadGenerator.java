@@ -0,0 +1,396 @@
+package com.paritosh.cheapchats.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+// End-to-end load against a running app: many STOMP sessions over /ws (SockJS), spread over groups joined
+// through the REST API, publishing at a fixed total rate. Latency is send-to-receive per delivered copy,
+// measured from the intended send time so a stalled server can't hide behind a slowed-down generator.
+public class LoadGenerator {
+
+	private static final String TOPIC_PREFIX = "/topic/group/";
+	private static final PrintStream OUT = System.out;
+
+	private final Settings settings;
+	private final String runId = UUID.randomUUID().toString().substring(0, 8);
+	private final String marker = "lt:" + runId + ":";
+
+	private final HttpClient http = HttpClient.newHttpClient();
+	private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+	private final WebSocketStompClient stompClient;
+
+	private final Recorder latency = new Recorder(3);
+	private final Histogram total = new Histogram(3);
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong received = new AtomicLong();
+	private final AtomicLong frames = new AtomicLong();
+	private final AtomicLong sendErrors = new AtomicLong();
+	private final AtomicLong transportErrors = new AtomicLong();
+
+	private final List<Client> clients = Collections.synchronizedList(new ArrayList<>());
+	private final List<String> groups = new ArrayList<>();
+
+	public LoadGenerator(Settings settings) {
+		this.settings = settings;
+		this.stompClient = new WebSocketStompClient(
+				new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+		this.stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+		this.stompClient.setDefaultHeartbeat(new long[] { 0, 0 });
+	}
+
+	public static void main(String[] args) throws Exception {
+		Settings settings = Settings.parse(args);
+		OUT.println("Load test settings: " + settings);
+		new LoadGenerator(settings).run();
+	}
+
+	public void run() throws Exception {
+		try {
+			createGroups();
+			connectSessions();
+			publish();
+			report();
+		} finally {
+			clients.forEach(client -> client.session().disconnect());
+			deleteGroups();
+			workers.shutdownNow();
+		}
+	}
+
+	// One creator per group, every session user joins its group through GroupController
+	private void createGroups() throws Exception {
+		for (int g = 0; g < settings.groups(); g++) {
+			String group = "lt-" + runId + "-g" + g;
+			post("/api/login?username=" + encode(creator(group)));
+			post("/api/group?groupName=" + encode(group) + "&createdBy=" + encode(creator(group)) + "&expiryInMinutes=120");
+			groups.add(group);
+		}
+
+		List<Future<?>> joins = new ArrayList<>();
+		Semaphore permits = new Semaphore(settings.connectConcurrency());
+		for (int i = 0; i < settings.sessions(); i++) {
+			String user = user(i);
+			String group = groupOf(i);
+			joins.add(workers.submit(() -> {
+				permits.acquire();
+				try {
+					post("/api/login?username=" + encode(user));
+					post("/api/group/" + encode(group) + "/join?username=" + encode(user));
+				} finally {
+					permits.release();
+				}
+				return null;
+			}));
+		}
+		for (Future<?> join : joins) {
+			join.get();
+		}
+		OUT.printf("Created %d groups, joined %d users%n", settings.groups(), settings.sessions());
+	}
+
+	private void connectSessions() throws Exception {
+		long started = System.nanoTime();
+		Semaphore permits = new Semaphore(settings.connectConcurrency());
+		List<Future<?>> connects = new ArrayList<>();
+
+		for (int i = 0; i < settings.sessions(); i++) {
+			int index = i;
+			connects.add(workers.submit(() -> {
+				permits.acquire();
+				try {
+					connect(index);
+				} finally {
+					permits.release();
+				}
+				return null;
+			}));
+		}
+
+		int failed = 0;
+		for (Future<?> connect : connects) {
+			try {
+				connect.get();
+			} catch (Exception e) {
+				failed++;
+			}
+		}
+
+		OUT.printf("Connected %d sessions (%d failed) in %d ms%n", clients.size(), failed,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+		if (clients.isEmpty()) {
+			throw new IllegalStateException("No session could connect to " + settings.baseUrl());
+		}
+	}
+
+	private void connect(int index) throws Exception {
+		String group = groupOf(index);
+		StompSession session = stompClient
+				.connectAsync(settings.baseUrl() + "/ws", new StompSessionHandlerAdapter() {
+					@Override
+					public void handleTransportError(StompSession session, Throwable exception) {
+						transportErrors.incrementAndGet();
+					}
+
+					@Override
+					public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+							byte[] payload, Throwable exception) {
+						transportErrors.incrementAndGet();
+					}
+				})
+				.get(30, TimeUnit.SECONDS);
+
+		// --batch=true subscribes to the coalesced topic, needs cheapchats.websocket.batch.enabled on the server
+		String destination = TOPIC_PREFIX + group + (settings.batch() ? "/batch" : "");
+		session.subscribe(destination, new StompFrameHandler() {
+			@Override
+			public Type getPayloadType(StompHeaders headers) {
+				return settings.batch() ? ChatMessageDto[].class : ChatMessageDto.class;
+			}
+
+			@Override
+			public void handleFrame(StompHeaders headers, Object payload) {
+				frames.incrementAndGet();
+				if (payload instanceof ChatMessageDto[] batch) {
+					for (ChatMessageDto message : batch) {
+						onMessage(message);
+					}
+				} else {
+					onMessage((ChatMessageDto) payload);
+				}
+			}
+		});
+
+		clients.add(new Client(user(index), group, session));
+	}
+
+	private void onMessage(ChatMessageDto message) {
+		String content = message.getContent();
+		if (content == null || !content.startsWith(marker)) {
+			return;
+		}
+		long intended = Long.parseLong(content, marker.length(), content.length(), 10);
+		latency.recordValue(Math.max(0, System.nanoTime() - intended));
+		received.incrementAndGet();
+	}
+
+	// Fixed total rate, round-robin over the sessions, each send on its own virtual thread
+	private void publish() throws InterruptedException {
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+		long start = System.nanoTime();
+		long warmupEnd = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds());
+		long end = warmupEnd + TimeUnit.SECONDS.toNanos(settings.durationSeconds());
+		long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+		long sentAtReport = 0;
+		long receivedAtReport = 0;
+
+		OUT.printf("Publishing %d msg/s for %ds warm-up + %ds measured%n", settings.rate(),
+				settings.warmupSeconds(), settings.durationSeconds());
+		OUT.println("    time    sent/s    recv/s   p50 ms   p99 ms   max ms");
+
+		for (long k = 0; ; k++) {
+			long intended = start + k * intervalNanos;
+			if (intended >= end) {
+				break;
+			}
+
+			long now;
+			while ((now = System.nanoTime()) < intended) {
+				LockSupport.parkNanos(intended - now);
+			}
+
+			Client client = clients.get((int) (k % clients.size()));
+			workers.execute(() -> send(client, intended));
+
+			if (now >= nextReport) {
+				Histogram interval = latency.getIntervalHistogram();
+				boolean measuring = now >= warmupEnd;
+				if (measuring) {
+					total.add(interval);
+				}
+				long sentNow = sent.get();
+				long receivedNow = received.get();
+				OUT.printf("%7ds %9d %9d %8.2f %8.2f %8.2f%s%n",
+						TimeUnit.NANOSECONDS.toSeconds(now - start),
+						sentNow - sentAtReport, receivedNow - receivedAtReport,
+						millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99)),
+						millis(interval.getMaxValue()), measuring ? "" : "  (warm-up)");
+				sentAtReport = sentNow;
+				receivedAtReport = receivedNow;
+				nextReport += TimeUnit.SECONDS.toNanos(1);
+			}
+		}
+
+		// let in-flight deliveries arrive before the last interval is taken
+		Thread.sleep(2000);
+		total.add(latency.getIntervalHistogram());
+	}
+
+	private void send(Client client, long intended) {
+		ChatMessageDto message = new ChatMessageDto();
+		message.setSender(client.user());
+		message.setContent(marker + intended);
+		message.setType("CHAT");
+
+		// a STOMP session must not be written to by two threads at once
+		synchronized (client) {
+			try {
+				client.session().send("/app/chat/" + client.group() + "/send", message);
+				sent.incrementAndGet();
+			} catch (RuntimeException e) {
+				sendErrors.incrementAndGet();
+			}
+		}
+	}
+
+	private void report() throws IOException {
+		double seconds = settings.durationSeconds();
+		long subscribersPerGroup = Math.max(1, clients.size() / settings.groups());
+
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("runId", runId);
+		summary.put("baseUrl", settings.baseUrl());
+		summary.put("sessions", clients.size());
+		summary.put("groups", settings.groups());
+		summary.put("targetRate", settings.rate());
+		summary.put("durationSeconds", settings.durationSeconds());
+		summary.put("sent", sent.get());
+		summary.put("received", received.get());
+		summary.put("batch", settings.batch());
+		summary.put("frames", frames.get());
+		summary.put("expectedDeliveries", sent.get() * subscribersPerGroup);
+		summary.put("sendErrors", sendErrors.get());
+		summary.put("transportErrors", transportErrors.get());
+		summary.put("deliveriesPerSecond", total.getTotalCount() / seconds);
+		summary.put("p50Ms", millis(total.getValueAtPercentile(50)));
+		summary.put("p99Ms", millis(total.getValueAtPercentile(99)));
+		summary.put("p999Ms", millis(total.getValueAtPercentile(99.9)));
+		summary.put("maxMs", millis(total.getMaxValue()));
+
+		OUT.println();
+		summary.forEach((key, value) -> OUT.printf("%-20s %s%n", key, value));
+
+		Path dir = Path.of(settings.outputDir());
+		Files.createDirectories(dir);
+		Path json = dir.resolve("loadtest-" + runId + ".json");
+		Path hgrm = dir.resolve("loadtest-" + runId + ".hgrm");
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(json.toFile(), summary);
+		try (PrintStream out = new PrintStream(Files.newOutputStream(hgrm), true, StandardCharsets.UTF_8)) {
+			total.outputPercentileDistribution(out, 1_000_000.0);
+		}
+		OUT.printf("%nWrote %s and %s (HDR histogram, milliseconds)%n", json, hgrm);
+	}
+
+	private void deleteGroups() {
+		for (String group : groups) {
+			try {
+				http.send(HttpRequest.newBuilder(URI.create(settings.baseUrl() + "/api/group/" + encode(group)
+						+ "?username=" + encode(creator(group)))).DELETE().build(), HttpResponse.BodyHandlers.discarding());
+			} catch (IOException | InterruptedException e) {
+				OUT.println("Could not delete group " + group + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private void post(String path) throws IOException, InterruptedException {
+		HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(settings.baseUrl() + path))
+				.POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() >= 400) {
+			throw new IllegalStateException("POST " + path + " returned " + response.statusCode() + ": " + response.body());
+		}
+	}
+
+	private String user(int index) {
+		return "lt-" + runId + "-u" + index;
+	}
+
+	private String groupOf(int index) {
+		return "lt-" + runId + "-g" + (index % settings.groups());
+	}
+
+	private static String creator(String group) {
+		return group + "-owner";
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	private record Client(String user, String group, StompSession session) {
+	}
+
+	// --key=value arguments, all optional
+	public record Settings(String baseUrl, int sessions, int groups, int rate, int warmupSeconds, int durationSeconds,
+			int connectConcurrency, String outputDir, boolean batch) {
+
+		static Settings parse(String[] args) {
+			Map<String, String> values = new HashMap<>();
+			for (String arg : args) {
+				if (!arg.startsWith("--") || !arg.contains("=")) {
+					throw new IllegalArgumentException("Expected --key=value, got " + arg);
+				}
+				values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+			}
+
+			Settings settings = new Settings(
+					values.getOrDefault("base-url", "http://localhost:8080"),
+					Integer.parseInt(values.getOrDefault("sessions", "1000")),
+					Integer.parseInt(values.getOrDefault("groups", "20")),
+					Integer.parseInt(values.getOrDefault("rate", "500")),
+					Integer.parseInt(values.getOrDefault("warmup", "10")),
+					Integer.parseInt(values.getOrDefault("duration", "60")),
+					Integer.parseInt(values.getOrDefault("connect-concurrency", "200")),
+					values.getOrDefault("output-dir", "target/loadtest"),
+					Boolean.parseBoolean(values.getOrDefault("batch", "false")));
+
+			if (settings.sessions() < 1 || settings.groups() < 1 || settings.rate() < 1 || settings.durationSeconds() < 1) {
+				throw new IllegalArgumentException("sessions, groups, rate and duration must be positive");
+			}
+			return settings;
+		}
+	}
+
+}
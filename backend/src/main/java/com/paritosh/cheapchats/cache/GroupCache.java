@@ -0,0 +1,106 @@
+package com.paritosh.cheapchats.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paritosh.cheapchats.models.ChatGroup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+// Bounded, short-lived copies of group metadata and member sets, so polled reads skip the database.
+// Entries are immutable snapshots; writers invalidate a group instead of updating it in place.
+// Hit/miss/eviction stats are published as cache.* meters tagged cache=group.metadata|group.members.
+// Read-through in relay mode without cluster fan-out, where no other node's writes would ever invalidate it.
+@Component
+@Slf4j
+public class GroupCache {
+
+    private final Cache<String, Optional<GroupSnapshot>> groups;
+    private final Cache<String, Set<String>> members;
+    private final boolean enabled;
+
+    public GroupCache(
+            MeterRegistry meterRegistry,
+            @Value("${cheapchats.groups.cache.max-size:10000}") long maxSize,
+            @Value("${cheapchats.groups.cache.ttl-seconds:30}") long ttlSeconds,
+            @Value("#{!'${cheapchats.broker.mode:simple}'.equalsIgnoreCase('relay') or '${cheapchats.cluster.fanout:none}'.equalsIgnoreCase('postgres')}") boolean enabled
+    ) {
+        Duration ttl = Duration.ofSeconds(Math.max(1, ttlSeconds));
+        this.groups = Caffeine.newBuilder().maximumSize(Math.max(1, maxSize)).expireAfterWrite(ttl).recordStats().build();
+        this.members = Caffeine.newBuilder().maximumSize(Math.max(1, maxSize)).expireAfterWrite(ttl).recordStats().build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, groups, "group.metadata");
+        CaffeineCacheMetrics.monitor(meterRegistry, members, "group.members");
+
+        this.enabled = enabled;
+        if (!enabled) {
+            log.info("Group cache disabled: relay mode without cluster fan-out, group reads go to the database");
+        }
+    }
+
+    // Group metadata, loaded through the loader on a miss; an empty result is cached as well
+    public Optional<GroupSnapshot> group(String groupName, Function<String, Optional<ChatGroup>> loader) {
+        if (!enabled) {
+            return loader.apply(groupName).map(GroupSnapshot::of);
+        }
+        return groups.get(groupName, name -> loader.apply(name).map(GroupSnapshot::of));
+    }
+
+    // Member names of a group in join order, loaded through the loader on a miss
+    public Set<String> members(String groupName, Function<String, List<String>> loader) {
+        if (!enabled) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(loader.apply(groupName)));
+        }
+        return members.get(groupName, name -> Collections.unmodifiableSet(new LinkedHashSet<>(loader.apply(name))));
+    }
+
+    // Forget a group's metadata and members after any write to it
+    public void invalidate(String groupName) {
+        groups.invalidate(groupName);
+        members.invalidate(groupName);
+    }
+
+    // Forget every group, e.g. after invalidations from other nodes may have been missed
+    public void invalidateAll() {
+        groups.invalidateAll();
+        members.invalidateAll();
+    }
+
+    // Forget only who is in a group (join, leave, removal)
+    public void invalidateMembers(String groupName) {
+        members.invalidate(groupName);
+    }
+
+    public record GroupSnapshot(String groupName, String createdBy, Instant expiresAt, boolean expired) {
+
+        static GroupSnapshot of(ChatGroup group) {
+            return new GroupSnapshot(group.getGroupName(), group.getCreatedBy(), group.getExpiresAt(), group.isExpired());
+        }
+
+        // A fresh entity for the caller, safe to modify and serialise
+        public ChatGroup toChatGroup(Set<String> memberNames) {
+            ChatGroup group = new ChatGroup();
+            group.setGroupName(groupName);
+            group.setCreatedBy(createdBy);
+            group.setExpiresAt(expiresAt);
+            group.setExpired(expired);
+            group.setMembers(new ArrayList<>(memberNames));
+            return group;
+        }
+    }
+
+}
@@ -0,0 +1,321 @@
+package com.paritosh.cheapchats.cache;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.MessageCursor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// Bounded, lock-free ring buffer of the most recent messages of each active group.
+// A buffer only answers a history request when the whole requested window is inside it.
+// Off in relay mode without cluster fan-out: other nodes' messages reach subscribers through the broker,
+// never this buffer, so every history request goes to the database.
+@Component
+@Slf4j
+public class RecentMessageCache {
+
+    // rough per-message overhead (dto, strings, entry) on top of the character data
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator
+            .comparing(Entry::timestamp)
+            .thenComparing(entry -> entry.message().getId())
+            .reversed();
+
+    private final int capacityPerGroup;
+    private final int maxGroups;
+    private final long maxBytes;
+    private final long idleNanos;
+    private final boolean enabled;
+
+    private final Map<String, GroupRing> rings = new ConcurrentHashMap<>();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public RecentMessageCache(
+            MeterRegistry meterRegistry,
+            @Value("${cheapchats.messages.cache.capacity-per-group:256}") int capacityPerGroup,
+            @Value("${cheapchats.messages.cache.max-groups:2000}") int maxGroups,
+            @Value("${cheapchats.messages.cache.max-bytes:67108864}") long maxBytes,
+            @Value("${cheapchats.messages.cache.idle-minutes:30}") long idleMinutes,
+            @Value("#{!'${cheapchats.broker.mode:simple}'.equalsIgnoreCase('relay') or '${cheapchats.cluster.fanout:none}'.equalsIgnoreCase('postgres')}") boolean enabled
+    ) {
+        this.capacityPerGroup = Math.max(1, capacityPerGroup);
+        this.maxGroups = Math.max(1, maxGroups);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.idleNanos = TimeUnit.MINUTES.toNanos(Math.max(1, idleMinutes));
+        this.enabled = enabled;
+        if (!enabled) {
+            log.info("Recent-message buffers disabled: relay mode without cluster fan-out, history is read from the database");
+        }
+
+        this.hits = Counter.builder("chat.history.cache.requests").tag("result", "hit")
+                .description("History requests served from the recent-messages buffer").register(meterRegistry);
+        this.misses = Counter.builder("chat.history.cache.requests").tag("result", "miss")
+                .description("History requests that went to the database").register(meterRegistry);
+        this.evictions = Counter.builder("chat.history.cache.evictions")
+                .description("Group buffers evicted for size or idleness").register(meterRegistry);
+        Gauge.builder("chat.history.cache.groups", rings, Map::size).register(meterRegistry);
+        Gauge.builder("chat.history.cache.bytes", estimatedBytes, AtomicLong::get).baseUnit("bytes").register(meterRegistry);
+    }
+
+    // Start an empty buffer for a group created on this node, it holds the group's entire history
+    public void startGroup(String groupName) {
+        if (!enabled) {
+            return;
+        }
+        GroupRing ring = new GroupRing(capacityPerGroup);
+        ring.complete = true;
+        if (rings.putIfAbsent(groupName, ring) == null) {
+            evictIfNeeded();
+        }
+    }
+
+    // Record a broadcast message as the newest message of its group
+    public void add(String groupName, ChatMessageDto message) {
+        if (!enabled) {
+            return;
+        }
+        GroupRing ring = rings.computeIfAbsent(groupName, name -> new GroupRing(capacityPerGroup));
+        ring.append(message, LocalDateTime.parse(message.getTimestamp()));
+        evictIfNeeded();
+    }
+
+    // Drop a deleted message so it is never served again
+    public void remove(String groupName, Long messageId) {
+        GroupRing ring = rings.get(groupName);
+        if (ring != null && messageId != null) {
+            ring.remove(messageId);
+        }
+    }
+
+    // Forget a group entirely (deleted, renamed or expired)
+    public void evictGroup(String groupName) {
+        GroupRing ring = rings.remove(groupName);
+        if (ring != null) {
+            estimatedBytes.addAndGet(-ring.bytes.get());
+        }
+    }
+
+    // Forget every group, e.g. after broadcasts from other nodes may have been missed
+    public void evictAll() {
+        rings.keySet().forEach(this::evictGroup);
+    }
+
+    // Newest-first window of up to limit + 1 messages older than the cursor, or null if the buffer can't answer
+    public List<ChatMessageDto> find(String groupName, MessageCursor before, int limit) {
+
+        GroupRing ring = rings.get(groupName);
+        if (ring == null) {
+            misses.increment();
+            return null;
+        }
+
+        ring.touch();
+        List<Entry> window = ring.window(before, limit + 1);
+
+        // a short window is only trustworthy when the buffer holds the group's entire history
+        if (window.size() <= limit && !ring.complete) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        List<ChatMessageDto> messages = new ArrayList<>(window.size());
+        window.forEach(entry -> messages.add(entry.message()));
+        return messages;
+    }
+
+    // Position to hand to seed() once the database answered a latest-page miss
+    public long mark(String groupName) {
+        GroupRing ring = rings.get(groupName);
+        return ring == null ? 0 : ring.head.get();
+    }
+
+    // Fill an empty buffer from a database page (newest first), unless messages arrived since mark()
+    public void seed(String groupName, long mark, List<ChatMessageDto> newestFirst, boolean completeHistory) {
+
+        if (!enabled || mark != 0 || newestFirst.size() > capacityPerGroup) {
+            return;
+        }
+
+        GroupRing ring = rings.computeIfAbsent(groupName, name -> new GroupRing(capacityPerGroup));
+        if (ring.seed(newestFirst, completeHistory)) {
+            log.debug("Seeded recent messages for {}: {} messages", groupName, newestFirst.size());
+        }
+        evictIfNeeded();
+    }
+
+    private void evictIfNeeded() {
+
+        if ((rings.size() <= maxGroups && estimatedBytes.get() <= maxBytes) || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long now = System.nanoTime();
+
+            // snapshot access times so the sort sees stable keys
+            List<Candidate> candidates = new ArrayList<>(rings.size());
+            rings.forEach((name, ring) -> candidates.add(new Candidate(name, ring, ring.lastAccessNanos)));
+            candidates.sort(Comparator.comparingLong(Candidate::lastAccessNanos));
+
+            // idle groups go first, then least recently used until we are back under both caps
+            for (Candidate candidate : candidates) {
+                boolean idle = now - candidate.lastAccessNanos() > idleNanos;
+                boolean overCap = rings.size() > maxGroups || estimatedBytes.get() > maxBytes;
+                if (!idle && !overCap) {
+                    break;
+                }
+                if (rings.remove(candidate.name(), candidate.ring())) {
+                    estimatedBytes.addAndGet(-candidate.ring().bytes.get());
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static long sizeOf(ChatMessageDto message) {
+        long chars = length(message.getSender()) + length(message.getContent()) + length(message.getTimestamp())
+                + length(message.getType());
+        return ENTRY_OVERHEAD_BYTES + chars * 2;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private record Candidate(String name, GroupRing ring, long lastAccessNanos) {
+    }
+
+    // Slot contents are immutable, a reader only trusts a slot whose sequence matches the one it expects
+    private record Entry(long seq, ChatMessageDto message, LocalDateTime timestamp) {
+    }
+
+    private final class GroupRing {
+
+        private final AtomicReferenceArray<Entry> slots;
+        private final AtomicLong head = new AtomicLong(); // next sequence to write
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile long lastAccessNanos = System.nanoTime();
+        private volatile boolean complete;
+
+        private GroupRing(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
+
+        private void touch() {
+            lastAccessNanos = System.nanoTime();
+        }
+
+        private void append(ChatMessageDto message, LocalDateTime timestamp) {
+            long seq = head.getAndIncrement();
+            store(seq, new Entry(seq, message, timestamp));
+            touch();
+        }
+
+        private boolean seed(List<ChatMessageDto> newestFirst, boolean completeHistory) {
+
+            int count = newestFirst.size();
+
+            // claim the first sequences only while nobody has written to this buffer yet
+            if (!head.compareAndSet(0, count)) {
+                return false;
+            }
+
+            for (int i = 0; i < count; i++) {
+                ChatMessageDto message = newestFirst.get(count - 1 - i);
+                store(i, new Entry(i, message, LocalDateTime.parse(message.getTimestamp())));
+            }
+            complete = completeHistory;
+            touch();
+            return true;
+        }
+
+        private void store(long seq, Entry entry) {
+            Entry previous = slots.getAndSet(index(seq), entry);
+            long delta = sizeOf(entry.message()) - (previous == null || previous.message() == null ? 0 : sizeOf(previous.message()));
+            bytes.addAndGet(delta);
+            estimatedBytes.addAndGet(delta);
+
+            // once the ring wraps it no longer holds the full history
+            if (seq >= slots.length()) {
+                complete = false;
+            }
+        }
+
+        private void remove(Long messageId) {
+            for (int i = 0; i < slots.length(); i++) {
+                Entry entry = slots.get(i);
+                if (entry != null && entry.message() != null && messageId.equals(entry.message().getId())
+                        && slots.compareAndSet(i, entry, new Entry(entry.seq(), null, entry.timestamp()))) {
+                    long delta = -sizeOf(entry.message());
+                    bytes.addAndGet(delta);
+                    estimatedBytes.addAndGet(delta);
+                    return;
+                }
+            }
+        }
+
+        private List<Entry> window(MessageCursor before, int max) {
+
+            long top = head.get();
+            long bottom = Math.max(0, top - slots.length());
+            List<Entry> live = new ArrayList<>();
+
+            for (long seq = top - 1; seq >= bottom; seq--) {
+                Entry entry = slots.get(index(seq));
+                if (entry == null || entry.seq() != seq) {
+                    // overwritten while reading: everything older is gone too
+                    if (entry != null && entry.seq() > seq) {
+                        break;
+                    }
+                    // not written yet: a concurrent append, it reaches clients through the topic
+                    continue;
+                }
+                if (entry.message() != null && isOlder(entry, before)) {
+                    live.add(entry);
+                }
+            }
+
+            // sequence order is broadcast order, pages are keyed by (timestamp, id)
+            live.sort(NEWEST_FIRST);
+            return live.size() > max ? new ArrayList<>(live.subList(0, max)) : live;
+        }
+
+        private boolean isOlder(Entry entry, MessageCursor before) {
+            if (before == null) {
+                return true;
+            }
+            int byTime = entry.timestamp().compareTo(before.timestamp());
+            return byTime < 0 || (byTime == 0 && entry.message().getId() < before.id());
+        }
+
+        private int index(long seq) {
+            return (int) (seq % slots.length());
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.paritosh.cheapchats.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// Message broker settings, see "Message Broker Configuration" in application.properties
+@Data
+@ConfigurationProperties(prefix = "cheapchats.broker")
+public class BrokerProperties {
+
+    // SIMPLE keeps subscriptions in this JVM, RELAY forwards /topic to an external STOMP broker
+    private Mode mode = Mode.SIMPLE;
+
+    private Relay relay = new Relay();
+
+    public enum Mode {
+        SIMPLE,
+        RELAY
+    }
+
+    @Data
+    public static class Relay {
+
+        private String host = "localhost";
+        private int port = 61613;
+        private String virtualHost;
+
+        private String clientLogin = "guest";
+        private String clientPasscode = "guest";
+        private String systemLogin = "guest";
+        private String systemPasscode = "guest";
+
+        // heartbeats on the shared "system" connection, 0 disables
+        private long heartbeatSendMs = 10000;
+        private long heartbeatReceiveMs = 10000;
+
+        // Hard per-node cap on STOMP sessions: every client session holds its own broker connection, the pool holds
+        // this many plus the system connection. Session max-sessions + 1 waits pending-acquire-timeout-ms for a
+        // connection to free up and then gets an ERROR frame, so size it to what one node is expected to carry.
+        private int maxSessions = 2000;
+        private long pendingAcquireTimeoutMs = 5000;
+        private long connectTimeoutMs = 5000;
+    }
+
+}
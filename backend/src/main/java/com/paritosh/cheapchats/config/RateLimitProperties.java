@@ -0,0 +1,52 @@
+package com.paritosh.cheapchats.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Inbound STOMP SEND limits, see "Rate Limit Configuration" in application.properties
+@Data
+@ConfigurationProperties(prefix = "cheapchats.ratelimit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // per STOMP session, or per user when the session is authenticated
+    private Limit session = new Limit(10, 20);
+
+    // per group, over every session sending to it on this node
+    private Limit group = new Limit(200, 400);
+
+    private Overflow overflow = Overflow.DROP;
+
+    // a message short of a token by at most this long waits for it instead of overflowing, 0 to never wait
+    private int deferMaxMs = 0;
+
+    // session and user buckets kept, least recently used ones are dropped first
+    private int maxSenders = 100_000;
+
+    // group buckets kept, least recently used ones are dropped first
+    private int maxGroups = 100_000;
+
+    public enum Overflow {
+        // discard the message silently
+        DROP,
+        // answer with a STOMP ERROR frame, which also closes the session
+        ERROR
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+
+        // sustained messages per second
+        private double perSecond;
+
+        // messages allowed back to back before the rate applies
+        private int burst;
+    }
+
+}
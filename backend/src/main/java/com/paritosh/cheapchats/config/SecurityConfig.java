@@ -12,6 +12,8 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.paritosh.cheapchats.controller.ChatController;
+
 @Configuration
 public class SecurityConfig {
 
@@ -42,6 +44,7 @@ public class SecurityConfig {
         ));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS")); // Allow all HTTP methods
         configuration.setAllowedHeaders(List.of("*")); // Allow all headers
+        configuration.setExposedHeaders(List.of(ChatController.NEXT_CURSOR_HEADER, ChatController.NEXT_PAGE_HEADER)); // History cursor, search page
         configuration.setAllowCredentials(true); // Allow credentials
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -57,6 +60,7 @@ public class SecurityConfig {
                 registry.addMapping("/**")
                         .allowedOrigins("https://cheap-chats.vercel.app")
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                        .exposedHeaders(ChatController.NEXT_CURSOR_HEADER, ChatController.NEXT_PAGE_HEADER)
                         .allowCredentials(true);
             }
         };
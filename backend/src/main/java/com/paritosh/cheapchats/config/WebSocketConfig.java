@@ -1,31 +1,178 @@
 package com.paritosh.cheapchats.config;
 
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompReactorNettyCodec;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
+import org.springframework.util.StringUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import com.paritosh.cheapchats.messaging.CompactMessageConverter;
+import com.paritosh.cheapchats.ratelimit.RateLimitInterceptor;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.tcp.TcpClient;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@EnableConfigurationProperties({ BrokerProperties.class, WebSocketProperties.class, RateLimitProperties.class })
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final BrokerProperties brokerProperties;
+    private final WebSocketProperties webSocketProperties;
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final String clusterFanout;
+
+    private ConnectionProvider relayConnections;
+
+    public WebSocketConfig(BrokerProperties brokerProperties, WebSocketProperties webSocketProperties,
+            RateLimitInterceptor rateLimitInterceptor, @Value("${cheapchats.cluster.fanout:none}") String clusterFanout) {
+        this.brokerProperties = brokerProperties;
+        this.webSocketProperties = webSocketProperties;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.clusterFanout = clusterFanout;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
 
         // Register the /ws endpoint, enabling SockJS fallback options
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        registry.setPreserveReceiveOrder(webSocketProperties.isPreserveOrder());
+
+    }
+
+    // Compact binary payloads for clients that ask for them by content type, JSON stays the default
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new CompactMessageConverter());
+        return true;
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        configureExecutor(registration, webSocketProperties.getInbound(), "stomp-inbound-");
+
+        // throttles SEND frames before they are queued for the executor
+        registration.interceptors(rateLimitInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        configureExecutor(registration, webSocketProperties.getOutbound(), "stomp-outbound-");
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+
+        // a slow consumer is cut off once it falls behind by this much, instead of holding up its group
+        WebSocketProperties.Transport transport = webSocketProperties.getTransport();
+        registration.setSendTimeLimit(transport.getSendTimeLimitMs())
+                .setSendBufferSizeLimit(transport.getSendBufferSizeLimit())
+                .setMessageSizeLimit(transport.getMessageSizeLimit())
+                .setTimeToFirstMessage(transport.getTimeToFirstMessageMs());
 
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
 
-        // Enable a simple in-memory message broker
-        // and set the prefix for messages that are bound for methods annotated with @MessageMapping
-        config.enableSimpleBroker("/topic");
+        if (brokerProperties.getMode() == BrokerProperties.Mode.RELAY) {
+
+            // Relay /topic to an external STOMP broker so subscriptions are shared by every node
+            BrokerProperties.Relay relay = brokerProperties.getRelay();
+            config.enableStompBrokerRelay("/topic")
+                    .setTcpClient(new ReactorNettyTcpClient<>(relayTcpClient(relay), new StompReactorNettyCodec()))
+                    .setVirtualHost(StringUtils.hasText(relay.getVirtualHost()) ? relay.getVirtualHost() : null)
+                    .setClientLogin(relay.getClientLogin())
+                    .setClientPasscode(relay.getClientPasscode())
+                    .setSystemLogin(relay.getSystemLogin())
+                    .setSystemPasscode(relay.getSystemPasscode())
+                    .setSystemHeartbeatSendInterval(relay.getHeartbeatSendMs())
+                    .setSystemHeartbeatReceiveInterval(relay.getHeartbeatReceiveMs());
+
+            log.info("STOMP broker relay enabled: {}:{}", relay.getHost(), relay.getPort());
+
+            // the relay shares subscriptions, not node state; the postgres fan-out carries renames and invalidations
+            if (!"postgres".equalsIgnoreCase(clusterFanout)) {
+                log.warn("Broker relay without cluster fan-out: rename aliases stay on the renaming node; "
+                        + "set cheapchats.cluster.fanout=postgres when running more than one node");
+            }
+
+        } else {
+
+            // Enable a simple in-memory message broker
+            config.enableSimpleBroker("/topic");
+
+        }
+
+        // set the prefix for messages that are bound for methods annotated with @MessageMapping
         config.setApplicationDestinationPrefixes("/app");
+        config.setPreservePublishOrder(webSocketProperties.isPreserveOrder());
+
+    }
+
+    // Virtual threads let handlers block on the database without tying up a platform thread each
+    private void configureExecutor(ChannelRegistration registration, WebSocketProperties.Channel channel, String threadPrefix) {
+
+        if (channel.getMode() == WebSocketProperties.ExecutorMode.VIRTUAL) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadPrefix);
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(channel.getMaxConcurrency());
+            registration.executor(executor);
+        } else {
+            registration.taskExecutor()
+                    .corePoolSize(channel.getCorePoolSize())
+                    .maxPoolSize(channel.getMaxPoolSize())
+                    .queueCapacity(channel.getQueueCapacity() > 0 ? channel.getQueueCapacity() : Integer.MAX_VALUE)
+                    .keepAliveSeconds(channel.getKeepAliveSeconds());
+        }
+
+        log.info("STOMP {} channel executor: {}", threadPrefix, channel);
+    }
+
+    // Bounded connection pool towards the broker, one connection per client session plus the system connection
+    private TcpClient relayTcpClient(BrokerProperties.Relay relay) {
+
+        int maxConnections = relayConnectionLimit(relay);
+        relayConnections = ConnectionProvider.builder("stomp-relay")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(relay.getPendingAcquireTimeoutMs()))
+                .build();
+        log.info("STOMP broker relay accepts at most {} sessions on this node", maxConnections - 1);
+
+        return TcpClient.create(relayConnections)
+                .host(relay.getHost())
+                .port(relay.getPort())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) relay.getConnectTimeoutMs())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.TCP_NODELAY, true);
+    }
+
+    static int relayConnectionLimit(BrokerProperties.Relay relay) {
+        return Math.max(1, relay.getMaxSessions()) + 1;
+    }
 
+    @PreDestroy
+    void disposeRelayConnections() {
+        if (relayConnections != null) {
+            relayConnections.dispose();
+        }
     }
 
 }
@@ -0,0 +1,84 @@
+package com.paritosh.cheapchats.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// STOMP channel executors and per-session transport limits, see "WebSocket Configuration" in application.properties
+@Data
+@ConfigurationProperties(prefix = "cheapchats.websocket")
+public class WebSocketProperties {
+
+    // messages from clients, runs the @MessageMapping handlers; the queue is unbounded so a burst never drops
+    // SEND or SUBSCRIBE frames, floods are held back by the rate limiter before they are queued
+    private Channel inbound = new Channel();
+
+    // messages to clients, one write per subscriber of a broadcast; the queue is unbounded so a broadcast to a
+    // large group is never rejected part way, slow sessions are cut off by the transport limits instead
+    private Channel outbound = new Channel();
+
+    // keep each session's messages in order when the channels run them on several threads
+    private boolean preserveOrder = true;
+
+    private Transport transport = new Transport();
+
+    private Batch batch = new Batch();
+
+    private Compact compact = new Compact();
+
+    public enum ExecutorMode {
+        POOL,
+        VIRTUAL
+    }
+
+    @Data
+    public static class Channel {
+
+        private ExecutorMode mode = ExecutorMode.POOL;
+
+        // POOL mode, a queueCapacity of 0 or less is unbounded and the pool stays at corePoolSize
+        private int corePoolSize = 16;
+        private int maxPoolSize = 64;
+        private int queueCapacity = -1;
+        private int keepAliveSeconds = 60;
+
+        // VIRTUAL mode, -1 for no limit
+        private int maxConcurrency = -1;
+    }
+
+    @Data
+    public static class Transport {
+
+        // a session that can't take a message within this time is closed
+        private int sendTimeLimitMs = 5000;
+
+        // bytes buffered for a slow session before it is closed
+        private int sendBufferSizeLimit = 256 * 1024;
+
+        // largest incoming STOMP message
+        private int messageSizeLimit = 64 * 1024;
+
+        private int timeToFirstMessageMs = 30000;
+    }
+
+    // Coalesced frames on /topic/group/{name}/batch for clients that subscribe there, off by default
+    @Data
+    public static class Batch {
+
+        private boolean enabled = false;
+
+        // how long the first message of a batch waits for company
+        private int windowMs = 5;
+
+        // a batch this large is sent without waiting for the window
+        private int maxMessages = 100;
+    }
+
+    // Binary frames on /topic/group/{name}/compact, see CompactMessageCodec, off by default
+    @Data
+    public static class Compact {
+
+        private boolean enabled = false;
+    }
+
+}
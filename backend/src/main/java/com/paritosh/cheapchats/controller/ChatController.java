@@ -2,25 +2,43 @@ package com.paritosh.cheapchats.controller;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.paritosh.cheapchats.cache.RecentMessageCache;
 import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.MessagePage;
+import com.paritosh.cheapchats.dto.MessageSearchPage;
+import com.paritosh.cheapchats.logging.MessageLog;
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
+import com.paritosh.cheapchats.messaging.GroupBroadcaster;
+import com.paritosh.cheapchats.metrics.ChatMetrics;
 import com.paritosh.cheapchats.models.ChatMessage;
 import com.paritosh.cheapchats.repositories.ChatMessageRepository;
+import com.paritosh.cheapchats.services.MessageExportService;
+import com.paritosh.cheapchats.services.MessageHistoryService;
+import com.paritosh.cheapchats.services.MessagePersistenceService;
+import com.paritosh.cheapchats.services.MessageSearchService;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -30,62 +48,113 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class ChatController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String NEXT_PAGE_HEADER = "X-Next-Page";
+
+    @Autowired
+    private final GroupBroadcaster groupBroadcaster;
     @Autowired
-    private final SimpMessagingTemplate messagingTemplate;
+    private final GroupAliasRegistry groupAliasRegistry;
     @Autowired
     private final ChatMessageRepository chatMessageRepository;
-
-    public ChatController(SimpMessagingTemplate messagingTemplate, ChatMessageRepository chatMessageRepository) {
-        this.messagingTemplate = messagingTemplate;
+    @Autowired
+    private final MessagePersistenceService messagePersistenceService;
+    @Autowired
+    private final MessageHistoryService messageHistoryService;
+    @Autowired
+    private final MessageSearchService messageSearchService;
+    @Autowired
+    private final MessageExportService messageExportService;
+    @Autowired
+    private final RecentMessageCache recentMessageCache;
+    @Autowired
+    private final ChatMetrics chatMetrics;
+    @Autowired
+    private final MessageLog messageLog;
+
+    public ChatController(GroupBroadcaster groupBroadcaster, GroupAliasRegistry groupAliasRegistry,
+            ChatMessageRepository chatMessageRepository, MessagePersistenceService messagePersistenceService,
+            MessageHistoryService messageHistoryService, MessageSearchService messageSearchService,
+            MessageExportService messageExportService, RecentMessageCache recentMessageCache, ChatMetrics chatMetrics,
+            MessageLog messageLog) {
+        this.groupBroadcaster = groupBroadcaster;
+        this.groupAliasRegistry = groupAliasRegistry;
         this.chatMessageRepository = chatMessageRepository;
+        this.messagePersistenceService = messagePersistenceService;
+        this.messageHistoryService = messageHistoryService;
+        this.messageSearchService = messageSearchService;
+        this.messageExportService = messageExportService;
+        this.recentMessageCache = recentMessageCache;
+        this.chatMetrics = chatMetrics;
+        this.messageLog = messageLog;
     }
 
     // Broadcast the message to all subscribers of the group and persist it
     @MessageMapping("/chat/{groupName}/send")
-    public void sendMessage(@DestinationVariable("groupName") String groupName, @Payload ChatMessageDto messageDto) {
+    public void sendMessage(@DestinationVariable("groupName") String destinationGroupName, @Payload ChatMessageDto messageDto) {
+        // Clients still on a group's old name are routed to its current name
+        String groupName = groupAliasRegistry.resolve(destinationGroupName);
         try {
             // Set timestamp
             messageDto.setTimestamp(LocalDateTime.now().toString());
 
             // Persist message
-            ChatMessage entity = new ChatMessage();
-            entity.setGroupName(groupName);
-            entity.setSender(messageDto.getSender());
-            entity.setContent(messageDto.getContent());
-            entity.setTimestamp(LocalDateTime.parse(messageDto.getTimestamp()));
-            entity.setType(messageDto.getType());
-
-            // Save message to database
-            ChatMessage savedEntity = chatMessageRepository.save(entity);
-            messageDto.setId(savedEntity.getId()); // Set the ID from saved entity
-            log.info("Message saved: " + entity.getContent() + "; Group: " + groupName + "; ID: " + savedEntity.getId());
+            ChatMessage entity = toEntity(groupName, messageDto);
+
+            // Queue message for a batched insert, the ID is assigned up front
+            chatMetrics.persistTimer().record(() -> messagePersistenceService.persist(entity));
+            messageDto.setId(entity.getId());
+
+            // Keep it in the recent-messages buffer for history loads
+            recentMessageCache.add(groupName, messageDto);
 
             // Send to WebSocket subscribers
-            messagingTemplate.convertAndSend("/topic/group/" + groupName, messageDto);
+            chatMetrics.broadcastTimer().record(() -> groupBroadcaster.broadcast(groupName, messageDto));
+            chatMetrics.messageSent(messageDto.getType());
 
-            log.info("Message sent: " + messageDto.getContent() + "; Group: " + groupName);
+            // sampled per group, content redacted
+            messageLog.sent(groupName, messageDto);
         } catch (MessagingException e) {
-            System.err.println("Invalid groupId: " + groupName);
+            log.warn("Invalid groupId: {}", groupName);
         }
     }
 
+    // Entity for a message sent to a group, the timestamp is already set on the dto
+    public static ChatMessage toEntity(String groupName, ChatMessageDto messageDto) {
+        ChatMessage entity = new ChatMessage();
+        entity.setGroupName(groupName);
+        entity.setSender(messageDto.getSender());
+        entity.setContent(messageDto.getContent());
+        entity.setTimestamp(LocalDateTime.parse(messageDto.getTimestamp()));
+        entity.setType(messageDto.getType());
+        return entity;
+    }
+
     // Delete message endpoint
     @DeleteMapping("/{messageId}")
-    public void deleteMessage(@PathVariable Long messageId, @RequestParam String groupName, @RequestParam String username) {
+    public void deleteMessage(@PathVariable Long messageId, @RequestParam("groupName") String requestedGroupName, @RequestParam String username) {
+        String groupName = groupAliasRegistry.resolve(requestedGroupName);
         try {
+            // Make sure a message still waiting in the write-behind queue is in the database
+            messagePersistenceService.flushIfPending(messageId);
+
             // Find the message
             ChatMessage message = chatMessageRepository.findById(messageId)
                     .orElseThrow(() -> new RuntimeException("Message not found"));
 
             // Check if the user is the sender of the message
             if (!message.getSender().equals(username)) {
-                log.info("DELETE DENIED: User " + username + " tried to delete message " + messageId + " sent by " + message.getSender());
+                log.info("DELETE DENIED: User {} tried to delete message {} sent by {}", username, messageId, message.getSender());
                 return;
             }
 
+            // the message's own group, the requested name may be stale or wrong
+            groupName = message.getGroupName();
+
             // Delete from database
             chatMessageRepository.deleteById(messageId);
-            log.info("DELETE: User " + username + " deleted message " + messageId + " from group " + groupName);
+            recentMessageCache.remove(groupName, messageId);
+            log.info("DELETE: User {} deleted message {} from group {}", username, messageId, groupName);
 
             // Create delete notification DTO
             ChatMessageDto deleteDto = new ChatMessageDto();
@@ -96,29 +165,78 @@ public class ChatController {
             deleteDto.setTimestamp(LocalDateTime.now().toString());
 
             // Broadcast delete notification to all subscribers
-            messagingTemplate.convertAndSend("/topic/group/" + groupName, deleteDto);
-            log.info("DELETE NOTIFICATION SENT: Message " + messageId + " delete notification broadcasted to group " + groupName);
-            log.info("DELETE DTO: " + deleteDto.toString());
+            groupBroadcaster.broadcast(groupName, deleteDto);
+            log.debug("DELETE NOTIFICATION SENT: Message {} delete notification broadcasted to group {}", messageId, groupName);
 
         } catch (MessagingException e) {
-            System.err.println("Error deleting message " + messageId + ": " + e.getMessage());
+            log.warn("Error deleting message {}: {}", messageId, e.getMessage());
         }
     }
 
-    // REST endpoint to fetch all messages for a group
+    // REST endpoint to fetch a page of messages for a group, newest page first
+    // The X-Next-Cursor header carries the "before" value of the next (older) page
     @GetMapping("/{groupName}")
-    public List<com.paritosh.cheapchats.dto.ChatMessageDto> getMessagesForGroup(@PathVariable String groupName) {
-        return chatMessageRepository.findByGroupNameOrderByTimestampAsc(groupName)
-                .stream()
-                .map(entity -> {
-                    com.paritosh.cheapchats.dto.ChatMessageDto dto = new com.paritosh.cheapchats.dto.ChatMessageDto();
-                    dto.setId(entity.getId());
-                    dto.setSender(entity.getSender());
-                    dto.setContent(entity.getContent());
-                    dto.setTimestamp(entity.getTimestamp().toString());
-                    dto.setType(entity.getType());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+    public ResponseEntity<List<ChatMessageDto>> getMessagesForGroup(
+            @PathVariable String groupName,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) Integer limit
+    ) {
+        MessagePage page = chatMetrics.historyTimer()
+                .record(() -> messageHistoryService.getMessages(groupAliasRegistry.resolve(groupName), before, limit));
+        chatMetrics.historyRows(page.getMessages().size());
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getMessages());
+    }
+
+    // REST endpoint to search a group's chat messages, best match first
+    // The X-Next-Page header carries the "page" value of the next page of hits
+    @GetMapping("/{groupName}/search")
+    public ResponseEntity<List<ChatMessageDto>> searchMessages(
+            @PathVariable String groupName,
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size
+    ) {
+        MessageSearchPage hits = chatMetrics.searchTimer()
+                .record(() -> messageSearchService.search(groupAliasRegistry.resolve(groupName), query, page, size));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (hits.getNextPage() != null) {
+            response.header(NEXT_PAGE_HEADER, hits.getNextPage().toString());
+        }
+        return response.body(hits.getMessages());
+    }
+
+    // REST endpoint to download a group's whole transcript, oldest first, as NDJSON or CSV and optionally gzipped
+    @GetMapping("/{groupName}/export")
+    public ResponseEntity<StreamingResponseBody> exportMessages(
+            @PathVariable String groupName,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        String resolvedGroupName = groupAliasRegistry.resolve(groupName);
+        MessageExportService.Format exportFormat = MessageExportService.Format.valueOf(format.toUpperCase());
+
+        StreamingResponseBody body = messageExportService.export(resolvedGroupName, exportFormat, gzip);
+        if (body == null) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many exports in progress, try again shortly");
+        }
+
+        String filename = resolvedGroupName + "." + exportFormat.extension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.contentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    // Exception handler for malformed cursors, search queries and export formats
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", ex.getMessage()));
     }
 }
@@ -1,5 +1,6 @@
 package com.paritosh.cheapchats.controller;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -20,8 +21,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
 import com.paritosh.cheapchats.models.ChatGroup;
-import com.paritosh.cheapchats.models.User;
 import com.paritosh.cheapchats.repositories.ChatGroupRepository;
 import com.paritosh.cheapchats.repositories.UserRepository;
 import com.paritosh.cheapchats.services.GroupService;
@@ -45,30 +46,20 @@ public class GroupController {
     @Autowired
     private ChatGroupRepository chatGroupRepository;
 
+    @Autowired
+    private GroupAliasRegistry groupAliasRegistry;
+
     // LOGIN
     @PostMapping("/login")
     public Map<String, String> login(@RequestParam String username) {
 
-        // Check if the user already exists
-        // If not, create a new user with a unique session ID
-        if (!userRepository.existsById(username)) {
-
-            User user = new User();
-
-            // Generate a unique session ID for the user
-            // This session ID can be used to identify the user in the chat system
-            user.setUserName(username);
-            user.setSessionId(UUID.randomUUID().toString());
-
-            // save changes
-            userRepository.save(user);
-
-        }
+        // Create the user if the name is new, a single idempotent upsert
+        // session_id only fills the legacy not-null column, live STOMP sessions are tracked by PresenceRegistry
+        userRepository.insertIfAbsent(username, UUID.randomUUID().toString());
 
         // log user login
         log.info("LOGIN: User: {}", username);
 
-        // If the user already exists, return the user
         return Map.of("status", "ok", "username", username);
 
     }
@@ -101,28 +92,29 @@ public class GroupController {
     }
 
     // GET GROUP EXPIRY TIME
+    // Fallback for clients without a STOMP connection, connected clients subscribe to /topic/group/{groupName}/expiry
     @GetMapping("/group/{groupName}/expiresIn")
     public ResponseEntity<Map<String, Object>> getGroupExpiryIn(@PathVariable String groupName) {
 
-        log.info("inside controller getGroupExpiryIn");
+        log.debug("inside controller getGroupExpiryIn");
 
-        try {
-            ChatGroup group = groupService.getGroupByName(groupName);
-            Integer minsLeft = Integer.valueOf(group.getExpiresIn());
-            boolean isExpired = group.isExpired();
+        ChatGroup group = groupService.getGroupByName(groupName);
+
+        if (group == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Group not found"));
+        }
 
-            log.info("fetched expiry mins: {}", minsLeft);
+        // computed from the stored expiry instant, nothing is written
+        Integer minsLeft = (int) group.minutesLeft(Instant.now());
+        boolean isExpired = group.isExpired();
 
-            return ResponseEntity.ok(Map.of(
-                    "minsLeft", minsLeft,
-                    "isExpired", isExpired
-            ));
+        log.debug("fetched expiry mins: {}", minsLeft);
 
-        } catch (NumberFormatException e) {
-            log.error("Error getting group expiry time: {}", e.getMessage());
-            return ResponseEntity.internalServerError()
-                    .body(Map.of("error", -1));
-        }
+        return ResponseEntity.ok(Map.of(
+                "minsLeft", minsLeft,
+                "isExpired", isExpired,
+                "expiresAt", String.valueOf(group.getExpiresAt())
+        ));
 
     }
 
@@ -159,7 +151,8 @@ public class GroupController {
     @GetMapping("/group/{groupName}/checkName")
     public ResponseEntity<Map<String, Boolean>> checkGroupNameExists(@PathVariable String groupName) {
 
-        boolean exists = chatGroupRepository.existsByGroupName(groupName);
+        // old names of renamed groups stay taken while they still route to the group
+        boolean exists = groupAliasRegistry.isAlias(groupName) || chatGroupRepository.existsByGroupName(groupName);
 
         return ResponseEntity.ok(Map.of("exists", exists));
 
@@ -0,0 +1,42 @@
+package com.paritosh.cheapchats.controller;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.paritosh.cheapchats.dto.TypingDto;
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
+import com.paritosh.cheapchats.presence.PresenceRegistry;
+
+@RestController
+public class PresenceController {
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Autowired
+    private GroupAliasRegistry groupAliasRegistry;
+
+    // Typing indicator of the sending session's user, pushed with the group's next presence delta
+    @MessageMapping("/chat/{groupName}/typing")
+    public void typing(@DestinationVariable("groupName") String groupName, @Payload TypingDto typingDto,
+            @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        presenceRegistry.typing(sessionId, groupAliasRegistry.resolve(groupName), typingDto.typing());
+    }
+
+    // Users online in a group on this node, for clients not subscribed to the presence topic
+    @GetMapping("/api/group/{groupName}/online")
+    public Map<String, Object> online(@PathVariable String groupName) {
+        String resolvedGroupName = groupAliasRegistry.resolve(groupName);
+        return Map.of("groupName", resolvedGroupName, "online", presenceRegistry.onlineCount(resolvedGroupName));
+    }
+
+}
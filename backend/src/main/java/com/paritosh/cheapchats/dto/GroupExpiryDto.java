@@ -0,0 +1,14 @@
+package com.paritosh.cheapchats.dto;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Expiry state pushed on a group's expiry topic, same fields as GET /api/group/{groupName}/expiresIn plus seconds
+public record GroupExpiryDto(String groupName, long minsLeft, long secondsLeft, boolean isExpired, String expiresAt) {
+
+    public static GroupExpiryDto of(String groupName, Instant expiresAt, boolean expired, Instant now) {
+        long secondsLeft = expired || expiresAt == null || !expiresAt.isAfter(now) ? 0 : Duration.between(now, expiresAt).toSeconds();
+        return new GroupExpiryDto(groupName, secondsLeft / 60, secondsLeft, expired || secondsLeft == 0,
+                String.valueOf(expiresAt));
+    }
+}
@@ -0,0 +1,15 @@
+package com.paritosh.cheapchats.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MessagePage {
+
+    private List<ChatMessageDto> messages; // oldest first
+    private String nextCursor; // null when there is nothing older
+
+}
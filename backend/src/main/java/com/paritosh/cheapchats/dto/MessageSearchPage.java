@@ -0,0 +1,15 @@
+package com.paritosh.cheapchats.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MessageSearchPage {
+
+    private List<ChatMessageDto> messages; // best match first
+    private Integer nextPage; // null when there are no more hits
+
+}
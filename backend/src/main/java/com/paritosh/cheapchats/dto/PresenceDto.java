@@ -0,0 +1,9 @@
+package com.paritosh.cheapchats.dto;
+
+import java.util.List;
+
+// Pushed on /topic/group/{groupName}/presence: a full snapshot on subscribe (users set, joined and left empty),
+// then coalesced deltas (users null). typing is always the complete list of users typing right now.
+public record PresenceDto(String groupName, int online, List<String> users, List<String> joined, List<String> left,
+        List<String> typing) {
+}
@@ -0,0 +1,5 @@
+package com.paritosh.cheapchats.dto;
+
+// Sent to /app/chat/{groupName}/typing when a user starts typing (true) and when they stop or send (false)
+public record TypingDto(boolean typing) {
+}
@@ -0,0 +1,90 @@
+package com.paritosh.cheapchats.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Per-message log lines for the send hot path, on their own logger (com.paritosh.cheapchats.messages).
+// DEBUG logs every message; INFO logs at most a few messages per group per second and counts the rest.
+// Message content is never logged, only its length.
+@Component
+@Slf4j(topic = "com.paritosh.cheapchats.messages")
+public class MessageLog {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int perGroupPerSecond;
+    private final int maxGroups;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public MessageLog(
+            @Value("${cheapchats.logging.messages.per-group-per-second:1}") int perGroupPerSecond,
+            @Value("${cheapchats.logging.messages.max-groups:10000}") int maxGroups
+    ) {
+        this.perGroupPerSecond = Math.max(0, perGroupPerSecond);
+        this.maxGroups = Math.max(1, maxGroups);
+    }
+
+    public void sent(String groupName, ChatMessageDto message) {
+        if (log.isDebugEnabled()) {
+            log.debug("Message sent group={} id={} type={} length={}",
+                    groupName, message.getId(), message.getType(), length(message.getContent()));
+        } else if (log.isInfoEnabled()) {
+            int skipped = sample(groupName);
+            if (skipped >= 0) {
+                log.info("Message sent group={} id={} type={} length={} skipped={}",
+                        groupName, message.getId(), message.getType(), length(message.getContent()), skipped);
+            }
+        }
+    }
+
+    // Messages skipped since the last logged one, or -1 when this one is skipped too
+    int sample(String groupName) {
+
+        Window window = windows.get(groupName);
+        if (window == null) {
+            // forget every group at once rather than tracking recency, sampling restarts cleanly
+            if (windows.size() >= maxGroups) {
+                windows.clear();
+            }
+            window = windows.computeIfAbsent(groupName, name -> new Window());
+        }
+
+        long now = System.nanoTime();
+        if (now - window.start >= WINDOW_NANOS) {
+            synchronized (window) {
+                if (now - window.start >= WINDOW_NANOS) {
+                    window.start = now;
+                    window.logged.set(0);
+                }
+            }
+        }
+
+        if (window.logged.incrementAndGet() <= perGroupPerSecond) {
+            return window.skipped.getAndSet(0);
+        }
+        window.skipped.incrementAndGet();
+        return -1;
+    }
+
+    private static int length(String content) {
+        return content == null ? 0 : content.length();
+    }
+
+    private static final class Window {
+
+        private volatile long start = System.nanoTime() - WINDOW_NANOS;
+        private final AtomicInteger logged = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+    }
+
+}
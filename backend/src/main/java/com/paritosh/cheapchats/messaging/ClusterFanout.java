@@ -0,0 +1,19 @@
+package com.paritosh.cheapchats.messaging;
+
+import java.util.List;
+
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.GroupExpiryDto;
+
+// Hands a broadcast to the other nodes of a cluster, which re-emit it to their own subscribers
+public interface ClusterFanout {
+
+    void publish(String groupName, List<String> aliases, ChatMessageDto message);
+
+    // Same for a push on the group's expiry topic
+    void publishExpiry(String groupName, List<String> aliases, GroupExpiryDto expiry);
+
+    // Tell the other nodes to drop their cached copy of a group (or only of its members)
+    void invalidateGroup(String groupName, boolean membersOnly);
+
+}
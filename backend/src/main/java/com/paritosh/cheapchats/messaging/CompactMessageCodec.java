@@ -0,0 +1,211 @@
+package com.paritosh.cheapchats.messaging;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+// Hand-rolled binary layout of a ChatMessageDto, under half the size of its JSON for short messages and cheaper to write and read:
+//   version byte | type byte | presence flags byte | id varint | epoch millis (8 bytes) | sender | content
+// Strings are a varint byte length followed by UTF-8. Absent fields take no space.
+// Timestamps travel as epoch millis in the server's zone, so anything below a millisecond is dropped.
+public final class CompactMessageCodec {
+
+    static final byte VERSION = 1;
+
+    // index = type byte, 0 is followed by the type as a string
+    private static final List<String> TYPES = List.of("", "CHAT", "JOIN", "LEAVE", "DELETE", "EXPIRED", "RENAME");
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_TIMESTAMP = 1 << 1;
+    private static final int HAS_SENDER = 1 << 2;
+    private static final int HAS_CONTENT = 1 << 3;
+    private static final int HAS_TYPE = 1 << 4;
+
+    private CompactMessageCodec() {
+    }
+
+    public static byte[] encode(ChatMessageDto message) {
+
+        byte[] sender = utf8(message.getSender());
+        byte[] content = utf8(message.getContent());
+        String type = message.getType();
+        int typeCode = type == null ? 0 : Math.max(0, TYPES.indexOf(type));
+        byte[] otherType = type != null && typeCode == 0 ? utf8(type) : null;
+        Long epochMillis = epochMillis(message.getTimestamp());
+
+        int flags = (message.getId() != null ? HAS_ID : 0)
+                | (epochMillis != null ? HAS_TIMESTAMP : 0)
+                | (sender != null ? HAS_SENDER : 0)
+                | (content != null ? HAS_CONTENT : 0)
+                | (type != null ? HAS_TYPE : 0);
+
+        int size = 3 + (message.getId() != null ? varLongSize(message.getId()) : 0) + (epochMillis != null ? 8 : 0)
+                + sized(sender) + sized(content) + sized(otherType);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.put((byte) typeCode);
+        buffer.put((byte) flags);
+        if (otherType != null) {
+            putBytes(buffer, otherType);
+        }
+        if (message.getId() != null) {
+            putVarLong(buffer, message.getId());
+        }
+        if (epochMillis != null) {
+            buffer.putLong(epochMillis);
+        }
+        if (sender != null) {
+            putBytes(buffer, sender);
+        }
+        if (content != null) {
+            putBytes(buffer, content);
+        }
+
+        return buffer.array();
+    }
+
+    public static ChatMessageDto decode(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.get() != VERSION) {
+                throw new IllegalArgumentException("Unsupported compact message version");
+            }
+            int typeCode = buffer.get();
+            int flags = buffer.get();
+
+            ChatMessageDto message = new ChatMessageDto();
+            if ((flags & HAS_TYPE) != 0) {
+                message.setType(typeCode == 0 ? getString(buffer) : TYPES.get(typeCode));
+            }
+            if ((flags & HAS_ID) != 0) {
+                message.setId(getVarLong(buffer));
+            }
+            if ((flags & HAS_TIMESTAMP) != 0) {
+                message.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneId.systemDefault()).toString());
+            }
+            if ((flags & HAS_SENDER) != 0) {
+                message.setSender(getString(buffer));
+            }
+            if ((flags & HAS_CONTENT) != 0) {
+                message.setContent(getString(buffer));
+            }
+            return message;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed compact message: " + e.getMessage(), e);
+        }
+    }
+
+    private static Long epochMillis(String timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        try {
+            LocalDateTime dateTime = parseIso(timestamp);
+            if (dateTime == null) {
+                dateTime = LocalDateTime.parse(timestamp);
+            }
+            ZoneOffset offset = ZoneId.systemDefault().getRules().getOffset(dateTime);
+            return dateTime.toEpochSecond(offset) * 1000 + dateTime.getNano() / 1_000_000;
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // LocalDateTime.toString() with seconds, e.g. 2025-01-01T12:00:00.123456, parsed without a DateTimeFormatter
+    private static LocalDateTime parseIso(String value) {
+        int length = value.length();
+        if (length < 19 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T'
+                || value.charAt(13) != ':' || value.charAt(16) != ':' || (length > 19 && value.charAt(19) != '.')) {
+            return null;
+        }
+        int nanos = 0;
+        for (int i = 20, scale = 100_000_000; i < length; i++, scale /= 10) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || scale == 0) {
+                return null;
+            }
+            nanos += digit * scale;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        int second = digits(value, 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return null;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nanos);
+    }
+
+    // -1 when not all digits
+    private static int digits(String value, int from, int count) {
+        int result = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sized(byte[] value) {
+        return value == null ? 0 : varLongSize(value.length) + value.length;
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        putVarLong(buffer, value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = (int) getVarLong(buffer);
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    // unsigned LEB128, ids and lengths are never negative
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.paritosh.cheapchats.messaging;
+
+import java.util.Map;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.MimeType;
+
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+// ChatMessageDto <-> CompactMessageCodec, picked only when a message carries the compact content type.
+// Everything without it still goes through the default JSON converter.
+// The octet-stream type makes Spring send the frame as binary to native WebSocket sessions (/ws/websocket);
+// SockJS sessions can only carry text and should stay on JSON.
+public class CompactMessageConverter extends AbstractMessageConverter {
+
+    public static final MimeType COMPACT = new MimeType("application", "octet-stream", Map.of("codec", "cheapchats-compact"));
+
+    public CompactMessageConverter() {
+        super(COMPACT);
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ChatMessageDto.class == clazz;
+    }
+
+    // the subtype alone would also match plain octet-stream, the codec parameter has to be there as well
+    @Override
+    protected boolean supportsMimeType(MessageHeaders headers) {
+        MimeType mimeType = getMimeType(headers);
+        return mimeType != null && COMPACT.getParameter("codec").equals(mimeType.getParameter("codec"))
+                && super.supportsMimeType(headers);
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        if (!(message.getPayload() instanceof byte[] bytes)) {
+            return null;
+        }
+        try {
+            return CompactMessageCodec.decode(bytes);
+        } catch (IllegalArgumentException e) {
+            throw new MessageConversionException(message, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        return CompactMessageCodec.encode((ChatMessageDto) payload);
+    }
+
+}
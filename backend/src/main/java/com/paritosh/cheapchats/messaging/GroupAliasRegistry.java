@@ -0,0 +1,83 @@
+package com.paritosh.cheapchats.messaging;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Old group names that still route to a renamed group for a grace period,
+// so clients subscribed to /topic/group/{old} keep sending and receiving while they move over
+@Component
+@Slf4j
+public class GroupAliasRegistry {
+
+    private final Duration aliasTtl;
+    private final Map<String, Alias> aliases = new ConcurrentHashMap<>();
+
+    public GroupAliasRegistry(@Value("${cheapchats.groups.rename-alias-minutes:15}") long aliasMinutes) {
+        this.aliasTtl = Duration.ofMinutes(Math.max(1, aliasMinutes));
+    }
+
+    // Route oldName to newName, re-pointing aliases that led to oldName
+    public void register(String oldName, String newName) {
+        Instant expiresAt = Instant.now().plus(aliasTtl);
+        aliases.replaceAll((name, alias) -> alias.target().equals(oldName) ? new Alias(newName, expiresAt) : alias);
+        aliases.put(oldName, new Alias(newName, expiresAt));
+        aliases.remove(newName);
+        log.info("ALIAS: {} -> {} until {}", oldName, newName, expiresAt);
+    }
+
+    // Undo register() when the rename did not go through
+    public void unregister(String oldName) {
+        aliases.remove(oldName);
+    }
+
+    // Current name of a group, the name itself when it is not an alias
+    public String resolve(String groupName) {
+        Alias alias = aliases.get(groupName);
+        if (alias == null) {
+            return groupName;
+        }
+        if (alias.isExpired()) {
+            aliases.remove(groupName, alias);
+            return groupName;
+        }
+        return alias.target();
+    }
+
+    // Whether the name still routes to another group; such a name is not free for a new group until the alias lapses,
+    // or the new group's users would be routed into the renamed one and its lagging clients would read the new group
+    public boolean isAlias(String groupName) {
+        return !resolve(groupName).equals(groupName);
+    }
+
+    // Old names still routed to the group, usually empty
+    public List<String> aliasesOf(String groupName) {
+        if (aliases.isEmpty()) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>(1);
+        aliases.forEach((name, alias) -> {
+            if (alias.target().equals(groupName) && !alias.isExpired()) {
+                names.add(name);
+            }
+        });
+        aliases.values().removeIf(Alias::isExpired);
+        return names;
+    }
+
+    private record Alias(String target, Instant expiresAt) {
+
+        private boolean isExpired() {
+            return Instant.now().isAfter(expiresAt);
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.paritosh.cheapchats.messaging;
+
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.GroupExpiryDto;
+import com.paritosh.cheapchats.metrics.StompSessionMetrics;
+
+// Single place that publishes to a group's topic, including old names kept alive after a rename
+@Component
+public class GroupBroadcaster {
+
+    public static final String GROUP_TOPIC_PREFIX = "/topic/group/";
+
+    // system topic per group, carries GroupExpiryDto instead of chat messages
+    public static final String EXPIRY_TOPIC_SUFFIX = "/expiry";
+
+    // same messages as the group topic, coalesced into arrays, see MessageBatcher
+    public static final String BATCH_TOPIC_SUFFIX = "/batch";
+
+    // same messages as the group topic in CompactMessageCodec's binary layout
+    public static final String COMPACT_TOPIC_SUFFIX = "/compact";
+
+    // system topic per group, carries PresenceDto snapshots and deltas, see PresencePublisher
+    public static final String PRESENCE_TOPIC_SUFFIX = "/presence";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final GroupAliasRegistry groupAliasRegistry;
+    private final StompSessionMetrics stompSessionMetrics;
+    private final GroupTopicPublisher groupTopicPublisher;
+
+    // null on a single node, set when cheapchats.cluster.fanout is enabled
+    private final ClusterFanout clusterFanout;
+
+    public GroupBroadcaster(SimpMessagingTemplate messagingTemplate, GroupAliasRegistry groupAliasRegistry,
+            StompSessionMetrics stompSessionMetrics, GroupTopicPublisher groupTopicPublisher,
+            ObjectProvider<ClusterFanout> clusterFanout) {
+        this.messagingTemplate = messagingTemplate;
+        this.groupAliasRegistry = groupAliasRegistry;
+        this.stompSessionMetrics = stompSessionMetrics;
+        this.groupTopicPublisher = groupTopicPublisher;
+        this.clusterFanout = clusterFanout.getIfAvailable();
+    }
+
+    public void broadcast(String groupName, ChatMessageDto message) {
+        List<String> aliases = groupAliasRegistry.aliasesOf(groupName);
+        groupTopicPublisher.publish(groupName, aliases, message);
+        stompSessionMetrics.recordFanout(groupName);
+
+        // subscribers connected to the other nodes
+        if (clusterFanout != null) {
+            clusterFanout.publish(groupName, aliases, message);
+        }
+    }
+
+    // Push a group's expiry state to its expiry topic, on changes and as the group nears expiry
+    public void broadcastExpiry(GroupExpiryDto expiry) {
+        String groupName = expiry.groupName();
+        List<String> aliases = groupAliasRegistry.aliasesOf(groupName);
+        messagingTemplate.convertAndSend(expiryTopic(groupName), expiry);
+        for (String alias : aliases) {
+            messagingTemplate.convertAndSend(expiryTopic(alias), expiry);
+        }
+
+        if (clusterFanout != null) {
+            clusterFanout.publishExpiry(groupName, aliases, expiry);
+        }
+    }
+
+    public static String expiryTopic(String groupName) {
+        return GROUP_TOPIC_PREFIX + groupName + EXPIRY_TOPIC_SUFFIX;
+    }
+
+    public static String batchTopic(String groupName) {
+        return GROUP_TOPIC_PREFIX + groupName + BATCH_TOPIC_SUFFIX;
+    }
+
+    public static String compactTopic(String groupName) {
+        return GROUP_TOPIC_PREFIX + groupName + COMPACT_TOPIC_SUFFIX;
+    }
+
+    public static String presenceTopic(String groupName) {
+        return GROUP_TOPIC_PREFIX + groupName + PRESENCE_TOPIC_SUFFIX;
+    }
+
+    // Group whose chat messages a subscription receives, in any format; null for system topics and other destinations
+    public static String messageGroupOf(String destination) {
+        if (destination == null || !destination.startsWith(GROUP_TOPIC_PREFIX)
+                || destination.endsWith(EXPIRY_TOPIC_SUFFIX) || destination.endsWith(PRESENCE_TOPIC_SUFFIX)) {
+            return null;
+        }
+        String groupName = destination.substring(GROUP_TOPIC_PREFIX.length());
+
+        // batch and compact subscribers get the group's messages too
+        for (String suffix : List.of(BATCH_TOPIC_SUFFIX, COMPACT_TOPIC_SUFFIX)) {
+            if (groupName.endsWith(suffix)) {
+                return groupName.substring(0, groupName.length() - suffix.length());
+            }
+        }
+        return groupName;
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.paritosh.cheapchats.messaging;
+
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import com.paritosh.cheapchats.cache.GroupCache;
+import com.paritosh.cheapchats.dto.GroupExpiryDto;
+import com.paritosh.cheapchats.repositories.ChatGroupRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Answers a subscription to /topic/group/{name}/expiry with the group's current expiry state.
+// The snapshot goes straight to the subscribing session; later changes arrive through GroupBroadcaster.broadcastExpiry.
+@Component
+@Slf4j
+public class GroupExpiryNotifier {
+
+    private final ChatGroupRepository chatGroupRepository;
+    private final GroupCache groupCache;
+    private final GroupAliasRegistry groupAliasRegistry;
+    private final SimpMessagingTemplate sessionTemplate;
+
+    public GroupExpiryNotifier(ChatGroupRepository chatGroupRepository, GroupCache groupCache,
+            GroupAliasRegistry groupAliasRegistry, @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+            @Qualifier("brokerMessageConverter") MessageConverter brokerMessageConverter) {
+        this.chatGroupRepository = chatGroupRepository;
+        this.groupCache = groupCache;
+        this.groupAliasRegistry = groupAliasRegistry;
+
+        // bypasses the broker, like a @SubscribeMapping reply
+        this.sessionTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+        this.sessionTemplate.setMessageConverter(brokerMessageConverter);
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null
+                || !destination.startsWith(GroupBroadcaster.GROUP_TOPIC_PREFIX)
+                || !destination.endsWith(GroupBroadcaster.EXPIRY_TOPIC_SUFFIX)) {
+            return;
+        }
+
+        String subscribedName = destination.substring(GroupBroadcaster.GROUP_TOPIC_PREFIX.length(),
+                destination.length() - GroupBroadcaster.EXPIRY_TOPIC_SUFFIX.length());
+        String groupName = groupAliasRegistry.resolve(subscribedName);
+
+        // served from the group cache, a missing group gets no snapshot
+        groupCache.group(groupName, chatGroupRepository::findById).ifPresent(group -> {
+            GroupExpiryDto expiry = GroupExpiryDto.of(groupName, group.expiresAt(), group.expired(), Instant.now());
+
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+            headers.setSessionId(accessor.getSessionId());
+            headers.setSubscriptionId(accessor.getSubscriptionId());
+            headers.setLeaveMutable(true);
+            sessionTemplate.convertAndSend(destination, expiry, headers.getMessageHeaders());
+
+            log.debug("Sent expiry snapshot of group {} to session {}", groupName, accessor.getSessionId());
+        });
+    }
+
+}
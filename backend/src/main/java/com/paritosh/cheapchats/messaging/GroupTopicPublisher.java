@@ -0,0 +1,74 @@
+package com.paritosh.cheapchats.messaging;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import com.paritosh.cheapchats.config.WebSocketProperties;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+// Hands one broadcast to this node's subscribers of a group's topics, in each format clients can subscribe for:
+// JSON frames on /topic/group/{name}, coalesced arrays on .../batch and compact binary frames on .../compact.
+// Each format is encoded once per broadcast; the group topic and every alias topic get the same byte[],
+// and the broker hands that same array on to every subscriber. Each session still encodes its own STOMP frame
+// around it, so per-subscriber cost is unchanged, see BroadcastBenchmark.
+// Used for broadcasts made here and for those relayed from other nodes.
+@Component
+public class GroupTopicPublisher {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MessageConverter brokerMessageConverter;
+    private final MessageBatcher messageBatcher;
+    private final boolean compact;
+
+    public GroupTopicPublisher(SimpMessagingTemplate messagingTemplate,
+            @Qualifier("brokerMessageConverter") MessageConverter brokerMessageConverter, MessageBatcher messageBatcher,
+            WebSocketProperties webSocketProperties) {
+        this.messagingTemplate = messagingTemplate;
+        this.brokerMessageConverter = brokerMessageConverter;
+        this.messageBatcher = messageBatcher;
+        this.compact = webSocketProperties.getCompact().isEnabled();
+    }
+
+    // aliases are the group's old names still kept alive after a rename
+    public void publish(String groupName, List<String> aliases, ChatMessageDto message) {
+
+        // same ObjectMapper and output as convertAndSend
+        Message<?> json = brokerMessageConverter.toMessage(message, headers(MimeTypeUtils.APPLICATION_JSON).getMessageHeaders());
+        byte[] compactBytes = compact ? CompactMessageCodec.encode(message) : null;
+
+        publish(groupName, json, compactBytes, message);
+        for (String alias : aliases) {
+            publish(alias, json, compactBytes, message);
+        }
+    }
+
+    private void publish(String topicName, Message<?> json, byte[] compactBytes, ChatMessageDto message) {
+        send(GroupBroadcaster.GROUP_TOPIC_PREFIX + topicName, json.getPayload(), MimeTypeUtils.APPLICATION_JSON);
+        messageBatcher.add(topicName, message);
+        if (compactBytes != null) {
+            send(GroupBroadcaster.compactTopic(topicName), compactBytes, CompactMessageConverter.COMPACT);
+        }
+    }
+
+    // bypasses conversion, the payload is already encoded
+    private void send(String destination, Object payload, MimeType contentType) {
+        messagingTemplate.send(destination, MessageBuilder.createMessage(payload, headers(contentType).getMessageHeaders()));
+    }
+
+    private static SimpMessageHeaderAccessor headers(MimeType contentType) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setContentType(contentType);
+        headers.setLeaveMutable(true);
+        return headers;
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.paritosh.cheapchats.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import com.paritosh.cheapchats.config.WebSocketProperties;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+// Coalesces a group's messages over a few milliseconds into one JSON array frame on /topic/group/{name}/batch.
+// Subscribing there is the client's opt-in; the plain topic keeps getting one frame per message for older clients.
+// Every flush runs on a single thread, so batches of a topic go out in order.
+@Component
+public class MessageBatcher {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxMessages;
+
+    // topic name (group or alias) -> messages waiting for the next flush
+    private final Map<String, List<ChatMessageDto>> pending = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher;
+    private final DistributionSummary batchSize;
+
+    public MessageBatcher(SimpMessagingTemplate messagingTemplate, WebSocketProperties webSocketProperties,
+            MeterRegistry meterRegistry) {
+        WebSocketProperties.Batch batch = webSocketProperties.getBatch();
+        this.messagingTemplate = messagingTemplate;
+        this.enabled = batch.isEnabled();
+        this.windowMs = Math.max(1, batch.getWindowMs());
+        this.maxMessages = Math.max(1, batch.getMaxMessages());
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSize = DistributionSummary.builder("chat.broadcast.batch.size")
+                .description("Messages per coalesced batch frame")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Queue a message for the batch topic of a group (or of one of its aliases)
+    public void add(String topicName, ChatMessageDto message) {
+        if (!enabled) {
+            return;
+        }
+
+        int[] size = { 0 };
+        pending.compute(topicName, (name, batch) -> {
+            if (batch == null) {
+                batch = new ArrayList<>();
+            }
+            batch.add(message);
+            size[0] = batch.size();
+            return batch;
+        });
+
+        if (size[0] == 1) {
+            flusher.schedule(() -> flush(topicName), windowMs, TimeUnit.MILLISECONDS);
+        } else if (size[0] == maxMessages) {
+            flusher.execute(() -> flush(topicName));
+        }
+    }
+
+    void flush(String topicName) {
+        List<ChatMessageDto> batch = pending.remove(topicName);
+        if (batch != null) {
+            messagingTemplate.convertAndSend(GroupBroadcaster.batchTopic(topicName), batch);
+            batchSize.record(batch.size());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(1, TimeUnit.SECONDS);
+        pending.keySet().forEach(this::flush);
+    }
+
+}
@@ -0,0 +1,339 @@
+package com.paritosh.cheapchats.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paritosh.cheapchats.cache.GroupCache;
+import com.paritosh.cheapchats.cache.RecentMessageCache;
+import com.paritosh.cheapchats.config.BrokerProperties;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.GroupExpiryDto;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Cluster fan-out over Postgres LISTEN/NOTIFY, so 2-4 nodes share broadcasts without a separate broker.
+// Every node NOTIFYs the broadcasts it makes and LISTENs on a dedicated connection for everyone else's.
+// Delivery is best effort: notifications sent while a listener reconnects are missed. The database still has
+// those messages, so on every (re)connect the local recent-message buffers and group cache are dropped and
+// history and metadata are read from the database again.
+// With the relay broker the broker already reaches every node's subscribers, so the fan-out only keeps node state
+// in step: recent-message buffers, the group cache and rename aliases. Nothing is re-emitted to subscribers then.
+@Component
+@ConditionalOnProperty(name = "cheapchats.cluster.fanout", havingValue = "postgres")
+@Slf4j
+public class PostgresClusterFanout implements ClusterFanout {
+
+    static final String CHANNEL = "cheapchats_fanout";
+
+    // NOTIFY payloads must stay under 8000 bytes, larger envelopes go through fanout_outbox
+    private static final int MAX_NOTIFY_BYTES = 7500;
+
+    private static final String INVALIDATE_GROUP = "group";
+    private static final String INVALIDATE_MEMBERS = "members";
+
+    private static final int POLL_MILLIS = 1000;
+    private static final long RECONNECT_MILLIS = 2000;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RecentMessageCache recentMessageCache;
+    private final GroupAliasRegistry groupAliasRegistry;
+    private final GroupCache groupCache;
+    private final GroupTopicPublisher groupTopicPublisher;
+    private final int outboxRetentionMinutes;
+
+    // the relay broker delivers broadcasts, received envelopes only update node state
+    private final boolean stateOnly;
+
+    // one thread keeps NOTIFYs in broadcast order and off the caller's thread
+    private final ThreadPoolExecutor publisher;
+
+    // recently delivered message keys, only touched by the listener thread
+    private final Map<String, Boolean> delivered;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresClusterFanout(
+            JdbcTemplate jdbcTemplate,
+            DataSourceProperties dataSourceProperties,
+            ObjectMapper objectMapper,
+            SimpMessagingTemplate messagingTemplate,
+            RecentMessageCache recentMessageCache,
+            GroupAliasRegistry groupAliasRegistry,
+            GroupCache groupCache,
+            GroupTopicPublisher groupTopicPublisher,
+            BrokerProperties brokerProperties,
+            @Value("${cheapchats.cluster.publish-queue-capacity:10000}") int publishQueueCapacity,
+            @Value("${cheapchats.cluster.dedup-window:10000}") int dedupWindow,
+            @Value("${cheapchats.cluster.outbox-retention-minutes:5}") int outboxRetentionMinutes
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+        this.messagingTemplate = messagingTemplate;
+        this.recentMessageCache = recentMessageCache;
+        this.groupAliasRegistry = groupAliasRegistry;
+        this.groupCache = groupCache;
+        this.groupTopicPublisher = groupTopicPublisher;
+        this.outboxRetentionMinutes = Math.max(1, outboxRetentionMinutes);
+        this.stateOnly = brokerProperties.getMode() == BrokerProperties.Mode.RELAY;
+
+        // a full queue makes the broadcasting thread publish itself rather than drop the message
+        this.publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, publishQueueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cluster-fanout-publisher");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        int window = Math.max(1, dedupWindow);
+        this.delivered = new LinkedHashMap<>(window, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > window;
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        listener = new Thread(this::listen, "cluster-fanout-listener");
+        listener.setDaemon(true);
+        listener.start();
+        log.info("Cluster fan-out started on channel {} as node {}{}", CHANNEL, nodeId, stateOnly ? ", node state only" : "");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        publisher.shutdown();
+        publisher.awaitTermination(5, TimeUnit.SECONDS);
+        if (listener != null) {
+            listener.join(POLL_MILLIS * 2L);
+        }
+    }
+
+    @Override
+    public void publish(String groupName, List<String> aliases, ChatMessageDto message) {
+        Envelope envelope = new Envelope(nodeId, groupName, aliases.isEmpty() ? null : aliases, message, null, null, null);
+        publisher.execute(() -> notify(envelope));
+    }
+
+    @Override
+    public void publishExpiry(String groupName, List<String> aliases, GroupExpiryDto expiry) {
+        // an expiry push changes no node state
+        if (stateOnly) {
+            return;
+        }
+        Envelope envelope = new Envelope(nodeId, groupName, aliases.isEmpty() ? null : aliases, null, null, null, expiry);
+        publisher.execute(() -> notify(envelope));
+    }
+
+    @Override
+    public void invalidateGroup(String groupName, boolean membersOnly) {
+        Envelope envelope = new Envelope(nodeId, groupName, null, null, null, membersOnly ? INVALIDATE_MEMBERS : INVALIDATE_GROUP, null);
+        publisher.execute(() -> notify(envelope));
+    }
+
+    // Outbox rows only need to live until every listener has read them
+    @Scheduled(fixedDelayString = "${cheapchats.cluster.outbox-cleanup-ms:60000}")
+    public void purgeOutbox() {
+        jdbcTemplate.update("DELETE FROM fanout_outbox WHERE created_at < now() - make_interval(mins => ?)",
+                outboxRetentionMinutes);
+    }
+
+    private void notify(Envelope envelope) {
+        try {
+            String payload = objectMapper.writeValueAsString(envelope);
+
+            if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_NOTIFY_BYTES) {
+                Long outboxId = jdbcTemplate.queryForObject(
+                        "INSERT INTO fanout_outbox (payload) VALUES (?) RETURNING id", Long.class, payload);
+                payload = objectMapper.writeValueAsString(new Envelope(nodeId, null, null, null, outboxId, null, null));
+            }
+
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+        } catch (JsonProcessingException | DataAccessException e) {
+            // local subscribers already have it, the other nodes' users can reload history
+            log.warn("Cluster fan-out publish failed for group {}: {}", envelope.group(), e.getMessage());
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            // a plain connection outside the pool, it is held for as long as the node runs
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Cluster fan-out listening on {}", CHANNEL);
+
+                // anything other nodes did while we were not listening is only in the database
+                resync();
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Cluster fan-out listener lost its connection, reconnecting: {}", e.getMessage());
+                    pause();
+                }
+            }
+        }
+    }
+
+    void receive(String payload) {
+        try {
+            Envelope envelope = objectMapper.readValue(payload, Envelope.class);
+
+            // Postgres also delivers our own notifications
+            if (nodeId.equals(envelope.node())) {
+                return;
+            }
+
+            if (envelope.outboxId() != null) {
+                String stored = jdbcTemplate.queryForObject("SELECT payload FROM fanout_outbox WHERE id = ?",
+                        String.class, envelope.outboxId());
+                envelope = objectMapper.readValue(stored, Envelope.class);
+            }
+
+            if (envelope.invalidate() != null) {
+                invalidate(envelope);
+                return;
+            }
+
+            // expiry state is idempotent, a repeated push needs no dedup
+            if (envelope.expiry() != null) {
+                messagingTemplate.convertAndSend(GroupBroadcaster.expiryTopic(envelope.group()), envelope.expiry());
+                for (String alias : envelope.aliases() == null ? List.<String>of() : envelope.aliases()) {
+                    messagingTemplate.convertAndSend(GroupBroadcaster.expiryTopic(alias), envelope.expiry());
+                }
+                return;
+            }
+
+            if (envelope.message() == null || !firstDelivery(envelope.message())) {
+                return;
+            }
+
+            deliver(envelope);
+        } catch (JsonProcessingException | DataAccessException e) {
+            log.warn("Dropping cluster fan-out notification: {}", e.getMessage());
+        }
+    }
+
+    // The same message id can be announced by more than one node, e.g. a delete retried against another node
+    private boolean firstDelivery(ChatMessageDto message) {
+        if (message.getId() == null) {
+            return true;
+        }
+        return delivered.put(message.getType() + ":" + message.getId(), Boolean.TRUE) == null;
+    }
+
+    // Mirror what the publishing node did locally, then emit to this node's subscribers unless the relay did
+    private void deliver(Envelope envelope) {
+
+        String groupName = envelope.group();
+        ChatMessageDto message = envelope.message();
+        List<String> aliases = envelope.aliases() == null ? List.of() : envelope.aliases();
+
+        switch (String.valueOf(message.getType())) {
+            case "DELETE" -> recentMessageCache.remove(groupName, message.getId());
+            case "EXPIRED" -> {
+                recentMessageCache.evictGroup(groupName);
+                groupCache.invalidate(groupName);
+            }
+            case "RENAME" -> {
+                for (String alias : aliases) {
+                    groupAliasRegistry.register(alias, groupName);
+                    recentMessageCache.evictGroup(alias);
+                    groupCache.invalidate(alias);
+                }
+                recentMessageCache.evictGroup(groupName);
+                groupCache.invalidate(groupName);
+            }
+            default -> {
+                if (message.getId() != null) {
+                    recentMessageCache.add(groupName, message);
+                }
+            }
+        }
+
+        if (!stateOnly) {
+            groupTopicPublisher.publish(groupName, aliases, message);
+        }
+    }
+
+    // Buffers that call themselves complete would keep serving history without the missed messages
+    void resync() {
+        recentMessageCache.evictAll();
+        groupCache.invalidateAll();
+    }
+
+    private void invalidate(Envelope envelope) {
+        if (INVALIDATE_MEMBERS.equals(envelope.invalidate())) {
+            groupCache.invalidateMembers(envelope.group());
+        } else {
+            groupCache.invalidate(envelope.group());
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(RECONNECT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // What travels through NOTIFY: a broadcast, a pointer to its outbox row, a group cache invalidation
+    // or an expiry push
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Envelope(String node, String group, List<String> aliases, ChatMessageDto message, Long outboxId,
+            String invalidate, GroupExpiryDto expiry) {
+    }
+
+}
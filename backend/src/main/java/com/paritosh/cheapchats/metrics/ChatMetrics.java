@@ -0,0 +1,103 @@
+package com.paritosh.cheapchats.metrics;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Meters for the chat hot paths. Tags only ever take values from small fixed sets, never group or user names,
+// so the number of series stays constant however many groups exist.
+@Component
+public class ChatMetrics {
+
+    private static final Set<String> MESSAGE_TYPES = Set.of("CHAT", "JOIN", "LEAVE", "DELETE", "EXPIRED", "RENAME");
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer persistTimer;
+    private final Timer broadcastTimer;
+    private final Timer historyTimer;
+    private final DistributionSummary historyRows;
+    private final Timer searchTimer;
+    private final Timer expiryLag;
+
+    public ChatMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        this.persistTimer = Timer.builder("chat.message.persist")
+                .description("Time to hand a sent message to the message writer")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.broadcastTimer = Timer.builder("chat.message.broadcast")
+                .description("Time to publish a sent message to its group's subscribers")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.historyTimer = Timer.builder("chat.history.fetch")
+                .description("Time to load a page of group history")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.historyRows = DistributionSummary.builder("chat.history.rows")
+                .description("Messages returned per history page")
+                .register(meterRegistry);
+        this.searchTimer = Timer.builder("chat.search.fetch")
+                .description("Time to load a page of message search hits")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.expiryLag = Timer.builder("chat.group.expiry.lag")
+                .description("Delay between a group's expiry time and the moment it was expired")
+                .register(meterRegistry);
+    }
+
+    public Timer persistTimer() {
+        return persistTimer;
+    }
+
+    public Timer broadcastTimer() {
+        return broadcastTimer;
+    }
+
+    public Timer historyTimer() {
+        return historyTimer;
+    }
+
+    public void historyRows(int rows) {
+        historyRows.record(rows);
+    }
+
+    public Timer searchTimer() {
+        return searchTimer;
+    }
+
+    public void expiryLag(long millis) {
+        expiryLag.record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    public void messageSent(String type) {
+        Counter.builder("chat.messages.sent")
+                .description("Messages sent by clients")
+                .tag("type", typeTag(type))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // operation and outcome are constants from the caller, e.g. ("join", "joined")
+    public void groupOperation(String operation, String outcome, long startedNanos) {
+        Timer.builder("chat.group.operation")
+                .description("Group create, join, leave, rename and delete")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // message types come from clients, anything unexpected is folded into one value
+    static String typeTag(String type) {
+        return type != null && MESSAGE_TYPES.contains(type) ? type : "OTHER";
+    }
+
+}
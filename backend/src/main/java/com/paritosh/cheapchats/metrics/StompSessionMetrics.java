@@ -0,0 +1,114 @@
+package com.paritosh.cheapchats.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import com.paritosh.cheapchats.messaging.GroupBroadcaster;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Live STOMP sessions and group subscriptions on this node.
+// Per-group counts are kept in memory and only exported as aggregates, never as a group-name tag.
+@Component
+public class StompSessionMetrics {
+
+    // session id -> subscription id -> group name
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+
+    // group name -> subscriptions to its topic
+    private final Map<String, Integer> subscribersByGroup = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriptions = new AtomicInteger();
+    private final DistributionSummary fanout;
+
+    public StompSessionMetrics(MeterRegistry meterRegistry) {
+        Gauge.builder("chat.stomp.sessions", sessions, Map::size)
+                .description("Connected STOMP sessions").register(meterRegistry);
+        Gauge.builder("chat.stomp.subscriptions", subscriptions, AtomicInteger::get)
+                .description("Subscriptions to group topics").register(meterRegistry);
+        Gauge.builder("chat.stomp.groups.active", subscribersByGroup, Map::size)
+                .description("Groups with at least one subscriber").register(meterRegistry);
+        Gauge.builder("chat.stomp.group.subscribers.max", this, StompSessionMetrics::largestGroup)
+                .description("Subscribers of the largest group").register(meterRegistry);
+        this.fanout = DistributionSummary.builder("chat.broadcast.subscribers")
+                .description("Subscribers reached per group broadcast")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (sessionId != null) {
+            sessions.putIfAbsent(sessionId, new ConcurrentHashMap<>());
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        // expiry and presence subscriptions are not group subscribers
+        String groupName = GroupBroadcaster.messageGroupOf(accessor.getDestination());
+        Map<String, String> sessionSubscriptions = accessor.getSessionId() == null ? null : sessions.get(accessor.getSessionId());
+        if (groupName == null || sessionSubscriptions == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        if (sessionSubscriptions.put(accessor.getSubscriptionId(), groupName) == null) {
+            subscribersByGroup.merge(groupName, 1, Integer::sum);
+            subscriptions.incrementAndGet();
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> sessionSubscriptions = accessor.getSessionId() == null ? null : sessions.get(accessor.getSessionId());
+        if (sessionSubscriptions != null && accessor.getSubscriptionId() != null) {
+            release(sessionSubscriptions.remove(accessor.getSubscriptionId()));
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> sessionSubscriptions = sessions.remove(event.getSessionId());
+        if (sessionSubscriptions != null) {
+            sessionSubscriptions.values().forEach(this::release);
+        }
+    }
+
+    // Subscribers of a group on this node
+    public int subscribers(String groupName) {
+        return subscribersByGroup.getOrDefault(groupName, 0);
+    }
+
+    public void recordFanout(String groupName) {
+        fanout.record(subscribers(groupName));
+    }
+
+    private void release(String groupName) {
+        if (groupName != null) {
+            subscribersByGroup.computeIfPresent(groupName, (name, count) -> count > 1 ? count - 1 : null);
+            subscriptions.decrementAndGet();
+        }
+    }
+
+    private double largestGroup() {
+        int max = 0;
+        for (int count : subscribersByGroup.values()) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+}
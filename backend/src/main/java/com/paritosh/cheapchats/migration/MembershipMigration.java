@@ -0,0 +1,60 @@
+package com.paritosh.cheapchats.migration;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Copies memberships out of the old chat_group_members element-collection table into group_member, once.
+// Runs before the web server starts, so member lists are never served half migrated, and under an advisory lock:
+// a node starting alongside waits for the copy and then finds the old table gone.
+@Component
+@Slf4j
+public class MembershipMigration implements SmartInitializingSingleton {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public MembershipMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrate();
+    }
+
+    public void migrate() {
+
+        // nothing to do, and no lock to take, on every start after the first
+        if (!hasLegacyTable()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext('cheapchats.membership-migration'))");
+
+            // another node may have copied and dropped it while we waited for the lock
+            if (!hasLegacyTable()) {
+                return;
+            }
+
+            int copied = jdbcTemplate.update("INSERT INTO group_member (group_name, user_name, joined_at) "
+                    + "SELECT DISTINCT group_name, members, now() FROM chat_group_members WHERE members IS NOT NULL "
+                    + "ON CONFLICT (group_name, user_name) DO NOTHING");
+            jdbcTemplate.execute("DROP TABLE chat_group_members");
+
+            log.info("Migrated {} memberships from chat_group_members to group_member", copied);
+        });
+    }
+
+    private boolean hasLegacyTable() {
+        return jdbcTemplate.queryForObject("SELECT to_regclass('chat_group_members')::text", String.class) != null;
+    }
+
+}
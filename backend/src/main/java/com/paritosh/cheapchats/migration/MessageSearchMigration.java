@@ -0,0 +1,61 @@
+package com.paritosh.cheapchats.migration;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Adds the content_tsv column and its GIN index (message search) while chat_message is still empty, i.e. on a new
+// database, where both are instant. On a table that already holds messages the column add rewrites the table under
+// an ACCESS EXCLUSIVE lock, so that is left to db/message-search.sql, run once when the stall is acceptable.
+// Runs before the web server starts, under an advisory lock so nodes starting together don't race.
+@Component
+@Slf4j
+public class MessageSearchMigration implements SmartInitializingSingleton {
+
+    // 'simple' does no stemming or stop words, chat is multilingual and full of names; must match MessageSearchServiceImpl
+    private static final String ADD_COLUMN = "ALTER TABLE chat_message ADD COLUMN IF NOT EXISTS content_tsv tsvector "
+            + "GENERATED ALWAYS AS (to_tsvector('simple', coalesce(content, ''))) STORED";
+    private static final String CREATE_INDEX = "CREATE INDEX IF NOT EXISTS idx_chat_message_content_tsv "
+            + "ON chat_message USING GIN (content_tsv)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public MessageSearchMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrate();
+    }
+
+    public void migrate() {
+        transactionTemplate.executeWithoutResult(status -> {
+
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext('cheapchats.message-search'))");
+
+            Boolean hasColumn = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM information_schema.columns "
+                    + "WHERE table_name = 'chat_message' AND column_name = 'content_tsv')", Boolean.class);
+            if (Boolean.TRUE.equals(hasColumn)) {
+                return;
+            }
+
+            Boolean hasMessages = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM chat_message)", Boolean.class);
+            if (Boolean.TRUE.equals(hasMessages)) {
+                log.warn("chat_message has no content_tsv column, message search fails until db/message-search.sql is run");
+                return;
+            }
+
+            jdbcTemplate.execute(ADD_COLUMN);
+            jdbcTemplate.execute(CREATE_INDEX);
+            log.info("Added content_tsv and its search index to chat_message");
+        });
+    }
+
+}
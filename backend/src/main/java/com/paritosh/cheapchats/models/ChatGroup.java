@@ -1,14 +1,16 @@
 package com.paritosh.cheapchats.models;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
-import jakarta.persistence.CollectionTable;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import jakarta.persistence.Column;
-import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
-import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Transient;
 import lombok.Data;
 
 @Entity
@@ -19,14 +21,25 @@ public class ChatGroup {
     @Column(name = "group_name")
     private String groupName;
     private String createdBy;
-    private String expiresIn;
+    private Instant expiresAt;
     private boolean isExpired;
 
-    @ElementCollection
-    @CollectionTable(
-            name = "chat_group_members",
-            joinColumns = @JoinColumn(name = "group_name")
-    )
-    @Column(name = "members")
+    // Member names, filled in only where a single group is returned (see GroupMember)
+    @Transient
     private List<String> members = new ArrayList<>();
+
+    // Whole minutes left before the group expires, never negative
+    public long minutesLeft(Instant now) {
+        if (expiresAt == null || !expiresAt.isAfter(now)) {
+            return 0;
+        }
+        return Duration.between(now, expiresAt).toMinutes();
+    }
+
+    // Minutes left as a string, kept for clients that still read "expiresIn"
+    @Transient
+    @JsonProperty("expiresIn")
+    public String getExpiresIn() {
+        return String.valueOf(minutesLeft(Instant.now()));
+    }
 }
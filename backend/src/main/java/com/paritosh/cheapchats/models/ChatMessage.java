@@ -6,17 +6,26 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.Data;
 
 @Entity
 @Data
+@Table(indexes = @Index(name = "idx_chat_message_group_ts_id", columnList = "group_name, timestamp, id"))
 public class ChatMessage {
+
+    // Number of ids handed out per sequence call (pooled-lo), shared with the write-behind writer
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_message_seq")
+    @SequenceGenerator(name = "chat_message_seq", sequenceName = "chat_message_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     private String groupName;
     private String sender;
     private String content;
     private LocalDateTime timestamp;
     private String type; // JOIN, LEAVE, CHAT
-} 
\ No newline at end of file
+}
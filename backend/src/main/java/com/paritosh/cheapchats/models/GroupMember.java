@@ -0,0 +1,32 @@
+package com.paritosh.cheapchats.models;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+
+@Entity
+@Data
+@Table(
+        name = "group_member",
+        uniqueConstraints = @UniqueConstraint(name = "uk_group_member_group_user", columnNames = {"group_name", "user_name"}),
+        indexes = @Index(name = "idx_group_member_user", columnList = "user_name")
+)
+public class GroupMember {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "group_name", nullable = false)
+    private String groupName;
+    @Column(name = "user_name", nullable = false)
+    private String userName;
+    private Instant joinedAt;
+}
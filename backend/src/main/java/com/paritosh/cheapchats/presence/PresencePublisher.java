@@ -0,0 +1,78 @@
+package com.paritosh.cheapchats.presence;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import com.paritosh.cheapchats.dto.PresenceDto;
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
+import com.paritosh.cheapchats.messaging.GroupBroadcaster;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Pushes presence on /topic/group/{name}/presence: a snapshot to each new subscriber, then at most one
+// coalesced delta per group every push interval, however many joins, leaves and keystrokes happened in between.
+// Presence is per node, like StompSessionMetrics; with several nodes each one reports its own sessions.
+@Component
+@Slf4j
+public class PresencePublisher {
+
+    private final PresenceRegistry presenceRegistry;
+    private final GroupAliasRegistry groupAliasRegistry;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpMessagingTemplate sessionTemplate;
+
+    public PresencePublisher(PresenceRegistry presenceRegistry, GroupAliasRegistry groupAliasRegistry,
+            SimpMessagingTemplate messagingTemplate, @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+            @Qualifier("brokerMessageConverter") MessageConverter brokerMessageConverter) {
+        this.presenceRegistry = presenceRegistry;
+        this.groupAliasRegistry = groupAliasRegistry;
+        this.messagingTemplate = messagingTemplate;
+
+        // bypasses the broker, like a @SubscribeMapping reply
+        this.sessionTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+        this.sessionTemplate.setMessageConverter(brokerMessageConverter);
+    }
+
+    @Scheduled(fixedDelayString = "${cheapchats.presence.push-interval-ms:1000}")
+    public void pushChanges() {
+        for (PresenceDto delta : presenceRegistry.drainChanges()) {
+            String groupName = delta.groupName();
+            messagingTemplate.convertAndSend(GroupBroadcaster.presenceTopic(groupName), delta);
+            for (String alias : groupAliasRegistry.aliasesOf(groupName)) {
+                messagingTemplate.convertAndSend(GroupBroadcaster.presenceTopic(alias), delta);
+            }
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null
+                || !destination.startsWith(GroupBroadcaster.GROUP_TOPIC_PREFIX)
+                || !destination.endsWith(GroupBroadcaster.PRESENCE_TOPIC_SUFFIX)) {
+            return;
+        }
+
+        String subscribedName = destination.substring(GroupBroadcaster.GROUP_TOPIC_PREFIX.length(),
+                destination.length() - GroupBroadcaster.PRESENCE_TOPIC_SUFFIX.length());
+        PresenceDto snapshot = presenceRegistry.snapshot(groupAliasRegistry.resolve(subscribedName));
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setSessionId(accessor.getSessionId());
+        headers.setSubscriptionId(accessor.getSubscriptionId());
+        headers.setLeaveMutable(true);
+        sessionTemplate.convertAndSend(destination, snapshot, headers.getMessageHeaders());
+
+        log.debug("Sent presence snapshot of group {} to session {}", snapshot.groupName(), accessor.getSessionId());
+    }
+
+}
@@ -0,0 +1,279 @@
+package com.paritosh.cheapchats.presence;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import com.paritosh.cheapchats.dto.PresenceDto;
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
+import com.paritosh.cheapchats.messaging.GroupBroadcaster;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Who is online in which group on this node, fed by STOMP session events: user -> sessions -> groups.
+// A user is online in a group while at least one of their sessions subscribes to its messages (any format).
+// The user name comes from the "username" header of the CONNECT frame; sessions without one are not tracked.
+// Every group's state is only touched inside ConcurrentHashMap.compute, so updates are atomic per group and
+// lookups stay O(1). Changes are collected as deltas until PresencePublisher drains them.
+@Component
+public class PresenceRegistry {
+
+    public static final String USERNAME_HEADER = "username";
+
+    private record Session(String userName, Map<String, String> subscriptions) {
+    }
+
+    private static final class GroupPresence {
+
+        // user -> their sessions subscribed to the group
+        private final Map<String, Integer> online = new HashMap<>();
+
+        // user -> nanoTime their typing indicator lapses
+        private final Map<String, Long> typing = new HashMap<>();
+
+        // since the last drain
+        private final Set<String> joined = new LinkedHashSet<>();
+        private final Set<String> left = new LinkedHashSet<>();
+        private boolean typingChanged;
+
+        // read without the map lock
+        private volatile int onlineCount;
+
+        private boolean hasChanges() {
+            return !joined.isEmpty() || !left.isEmpty() || typingChanged;
+        }
+    }
+
+    // session id -> user and subscription id -> group
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private final Map<String, GroupPresence> groups = new ConcurrentHashMap<>();
+
+    // user -> connected sessions
+    private final Map<String, Integer> users = new ConcurrentHashMap<>();
+
+    // groups with undrained deltas or live typing indicators
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final GroupAliasRegistry groupAliasRegistry;
+    private final LongSupplier clock;
+    private final long typingTtlNanos;
+
+    @Autowired
+    public PresenceRegistry(GroupAliasRegistry groupAliasRegistry, MeterRegistry meterRegistry,
+            @Value("${cheapchats.presence.typing-ttl-ms:5000}") long typingTtlMs) {
+        this(groupAliasRegistry, meterRegistry, typingTtlMs, System::nanoTime);
+    }
+
+    PresenceRegistry(GroupAliasRegistry groupAliasRegistry, MeterRegistry meterRegistry, long typingTtlMs, LongSupplier clock) {
+        this.groupAliasRegistry = groupAliasRegistry;
+        this.clock = clock;
+        this.typingTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, typingTtlMs));
+
+        Gauge.builder("chat.presence.users", users, Map::size)
+                .description("Users with at least one STOMP session on this node").register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Principal user = event.getUser();
+        String userName = user != null ? user.getName() : accessor.getFirstNativeHeader(USERNAME_HEADER);
+        connect(accessor.getSessionId(), userName);
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String groupName = GroupBroadcaster.messageGroupOf(accessor.getDestination());
+        if (groupName != null) {
+            subscribe(accessor.getSessionId(), accessor.getSubscriptionId(), groupAliasRegistry.resolve(groupName));
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnect(event.getSessionId());
+    }
+
+    void connect(String sessionId, String userName) {
+        if (sessionId == null || userName == null || userName.isBlank()) {
+            return;
+        }
+        if (sessions.putIfAbsent(sessionId, new Session(userName, new HashMap<>())) == null) {
+            users.merge(userName, 1, Integer::sum);
+        }
+    }
+
+    void subscribe(String sessionId, String subscriptionId, String groupName) {
+        Session session = sessionId == null ? null : sessions.get(sessionId);
+        if (session == null || subscriptionId == null) {
+            return;
+        }
+        synchronized (session) {
+            if (sessions.get(sessionId) != session) {
+                // disconnected meanwhile
+                return;
+            }
+            // a second subscription to the same group (e.g. its batch topic) doesn't count twice
+            boolean first = !session.subscriptions().containsValue(groupName);
+            if (session.subscriptions().put(subscriptionId, groupName) == null && first) {
+                enter(groupName, session.userName());
+            }
+        }
+    }
+
+    void unsubscribe(String sessionId, String subscriptionId) {
+        Session session = sessionId == null ? null : sessions.get(sessionId);
+        if (session == null || subscriptionId == null) {
+            return;
+        }
+        synchronized (session) {
+            String groupName = session.subscriptions().remove(subscriptionId);
+            if (groupName != null && !session.subscriptions().containsValue(groupName)) {
+                exit(groupName, session.userName());
+            }
+        }
+    }
+
+    void disconnect(String sessionId) {
+        Session session = sessionId == null ? null : sessions.remove(sessionId);
+        if (session == null) {
+            return;
+        }
+        synchronized (session) {
+            for (String groupName : Set.copyOf(session.subscriptions().values())) {
+                exit(groupName, session.userName());
+            }
+            session.subscriptions().clear();
+        }
+        users.computeIfPresent(session.userName(), (name, count) -> count > 1 ? count - 1 : null);
+    }
+
+    // Starts or stops the typing indicator of the session's user; ignored unless they are online in the group
+    public void typing(String sessionId, String groupName, boolean typing) {
+        Session session = sessionId == null ? null : sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        String userName = session.userName();
+        long until = clock.getAsLong() + typingTtlNanos;
+        groups.computeIfPresent(groupName, (name, presence) -> {
+            if (!presence.online.containsKey(userName)) {
+                return presence;
+            }
+            boolean changed = typing ? presence.typing.put(userName, until) == null : presence.typing.remove(userName) != null;
+            if (changed) {
+                presence.typingChanged = true;
+            }
+            pending.add(name);
+            return presence;
+        });
+    }
+
+    public int onlineCount(String groupName) {
+        GroupPresence presence = groups.get(groupName);
+        return presence == null ? 0 : presence.onlineCount;
+    }
+
+    public String userOf(String sessionId) {
+        Session session = sessionId == null ? null : sessions.get(sessionId);
+        return session == null ? null : session.userName();
+    }
+
+    // Full state of a group, sent to a new subscriber of its presence topic
+    public PresenceDto snapshot(String groupName) {
+        PresenceDto[] snapshot = { null };
+        groups.computeIfPresent(groupName, (name, presence) -> {
+            snapshot[0] = new PresenceDto(name, presence.online.size(), List.copyOf(presence.online.keySet()), List.of(),
+                    List.of(), List.copyOf(presence.typing.keySet()));
+            return presence;
+        });
+        return snapshot[0] != null ? snapshot[0] : new PresenceDto(groupName, 0, List.of(), List.of(), List.of(), List.of());
+    }
+
+    // Deltas since the last call for every group that changed, lapsed typing indicators included
+    public List<PresenceDto> drainChanges() {
+        long now = clock.getAsLong();
+        List<PresenceDto> changes = new ArrayList<>();
+        for (String groupName : List.copyOf(pending)) {
+            pending.remove(groupName);
+            groups.computeIfPresent(groupName, (name, presence) -> {
+                if (presence.typing.values().removeIf(until -> until - now <= 0)) {
+                    presence.typingChanged = true;
+                }
+                if (presence.hasChanges()) {
+                    changes.add(new PresenceDto(name, presence.online.size(), null, List.copyOf(presence.joined),
+                            List.copyOf(presence.left), List.copyOf(presence.typing.keySet())));
+                    presence.joined.clear();
+                    presence.left.clear();
+                    presence.typingChanged = false;
+                }
+                if (!presence.typing.isEmpty()) {
+                    // check again next time for lapsed indicators
+                    pending.add(name);
+                }
+                return presence.online.isEmpty() ? null : presence;
+            });
+        }
+        return changes;
+    }
+
+    private void enter(String groupName, String userName) {
+        groups.compute(groupName, (name, presence) -> {
+            GroupPresence group = presence != null ? presence : new GroupPresence();
+            if (group.online.merge(userName, 1, Integer::sum) == 1) {
+                // back before the last leave was pushed, the two cancel out
+                if (!group.left.remove(userName)) {
+                    group.joined.add(userName);
+                }
+                group.onlineCount = group.online.size();
+                pending.add(name);
+            }
+            return group;
+        });
+    }
+
+    private void exit(String groupName, String userName) {
+        groups.computeIfPresent(groupName, (name, presence) -> {
+            Integer sessionsLeft = presence.online.computeIfPresent(userName, (user, count) -> count > 1 ? count - 1 : null);
+            if (sessionsLeft == null) {
+                if (!presence.joined.remove(userName)) {
+                    presence.left.add(userName);
+                }
+                if (presence.typing.remove(userName) != null) {
+                    presence.typingChanged = true;
+                }
+                presence.onlineCount = presence.online.size();
+                pending.add(name);
+            }
+            // kept until drained so the last leave is still pushed
+            return presence;
+        });
+    }
+
+}
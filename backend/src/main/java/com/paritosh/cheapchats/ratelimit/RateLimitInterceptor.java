@@ -0,0 +1,189 @@
+package com.paritosh.cheapchats.ratelimit;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paritosh.cheapchats.config.RateLimitProperties;
+import com.paritosh.cheapchats.config.RateLimitProperties.Limit;
+import com.paritosh.cheapchats.config.RateLimitProperties.Overflow;
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// Limits STOMP SEND frames per session (or user) and per group before they reach a @MessageMapping,
+// so one flooding client can't queue up inserts and fan-outs for everyone else on the node.
+// Runs in preSend on the client's reader thread: a deferred message only holds up its own session.
+@Component
+@Slf4j
+public class RateLimitInterceptor implements ChannelInterceptor {
+
+    private static final String SEND_PREFIX = "/app/chat/";
+    private static final String SEND_SUFFIX = "/send";
+
+    private final RateLimitProperties properties;
+    private final GroupAliasRegistry groupAliasRegistry;
+    private final LongSupplier clock;
+    private final long deferMaxNanos;
+
+    // session (or user) -> bucket, bounded; session buckets are removed on disconnect, user buckets once idle
+    private final Cache<String, TokenBucket> senders;
+
+    // group -> bucket, bounded
+    private final Cache<String, TokenBucket> groups;
+
+    private final Counter rejectedBySession;
+    private final Counter rejectedByGroup;
+    private final Counter deferred;
+
+    @Autowired
+    public RateLimitInterceptor(RateLimitProperties properties, GroupAliasRegistry groupAliasRegistry,
+            MeterRegistry meterRegistry) {
+        this(properties, groupAliasRegistry, meterRegistry, System::nanoTime);
+    }
+
+    RateLimitInterceptor(RateLimitProperties properties, GroupAliasRegistry groupAliasRegistry,
+            MeterRegistry meterRegistry, LongSupplier clock) {
+        this.properties = properties;
+        this.groupAliasRegistry = groupAliasRegistry;
+        this.clock = clock;
+        this.deferMaxNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, properties.getDeferMaxMs()));
+        this.senders = buckets(properties.getMaxSenders(), properties.getSession());
+        this.groups = buckets(properties.getMaxGroups(), properties.getGroup());
+
+        String action = properties.getOverflow() == Overflow.ERROR ? "error" : "dropped";
+        this.rejectedBySession = Counter.builder("chat.ratelimit.rejected").tag("scope", "session").tag("action", action)
+                .description("STOMP SEND frames over the rate limit").register(meterRegistry);
+        this.rejectedByGroup = Counter.builder("chat.ratelimit.rejected").tag("scope", "group").tag("action", action)
+                .description("STOMP SEND frames over the rate limit").register(meterRegistry);
+        this.deferred = Counter.builder("chat.ratelimit.deferred")
+                .description("STOMP SEND frames that waited for a token").register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+
+        if (!properties.isEnabled()) {
+            return message;
+        }
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        if (accessor.getCommand() != StompCommand.SEND || accessor.getSessionId() == null) {
+            return message;
+        }
+
+        String sender = senderKey(accessor);
+        TokenBucket senderBucket = senders.get(sender, key -> bucket(properties.getSession()));
+
+        String groupName = groupOf(accessor.getDestination());
+        TokenBucket groupBucket = groupName == null ? null : groups.get(groupName, key -> bucket(properties.getGroup()));
+
+        // both buckets are checked before either is charged, so a message the group refuses costs the sender nothing
+        long now = clock.getAsLong();
+        long senderWait = senderBucket.waitNanos(now);
+        if (senderWait > deferMaxNanos) {
+            return overflow(rejectedBySession, "session", sender);
+        }
+        long groupWait = groupBucket == null ? 0 : groupBucket.waitNanos(now);
+        if (groupWait > deferMaxNanos) {
+            return overflow(rejectedByGroup, "group", groupName);
+        }
+
+        if (!await(Math.max(senderWait, groupWait))) {
+            return overflow(rejectedBySession, "session", sender);
+        }
+
+        now = clock.getAsLong();
+        if (senderBucket.tryAcquire(now) != 0) {
+            return overflow(rejectedBySession, "session", sender);
+        }
+        // another session may have taken the group's last token meanwhile
+        if (groupBucket != null && groupBucket.tryAcquire(now) != 0) {
+            senderBucket.refund();
+            return overflow(rejectedByGroup, "group", groupName);
+        }
+
+        return message;
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        senders.invalidate("session:" + event.getSessionId());
+    }
+
+    // session and user buckets currently held
+    long senderBuckets() {
+        senders.cleanUp();
+        return senders.estimatedSize();
+    }
+
+    private boolean await(long wait) {
+        if (wait == 0) {
+            return true;
+        }
+
+        deferred.increment();
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Message<?> overflow(Counter counter, String scope, String key) {
+        counter.increment();
+        if (properties.getOverflow() == Overflow.ERROR) {
+            // turned into a STOMP ERROR frame by StompSubProtocolHandler, which then closes the session
+            throw new MessageDeliveryException("Rate limit exceeded for " + scope);
+        }
+        log.debug("Dropped SEND over the {} rate limit: {}", scope, key);
+        return null;
+    }
+
+    private TokenBucket bucket(Limit limit) {
+        return new TokenBucket(limit.getPerSecond(), limit.getBurst(), clock.getAsLong());
+    }
+
+    // a bucket left alone until it has refilled is as good as a new one, so idle buckets can go
+    private Cache<String, TokenBucket> buckets(int maxSize, Limit limit) {
+        long refillNanos = new TokenBucket(limit.getPerSecond(), limit.getBurst(), 0).refillNanos();
+        return Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxSize))
+                .expireAfterAccess(Duration.ofNanos(refillNanos))
+                .ticker(clock::getAsLong)
+                .build();
+    }
+
+    // user buckets outlive a session, so reconnecting doesn't reset the limit
+    private static String senderKey(StompHeaderAccessor accessor) {
+        Principal user = accessor.getUser();
+        return user != null ? "user:" + user.getName() : "session:" + accessor.getSessionId();
+    }
+
+    private String groupOf(String destination) {
+        if (destination == null || !destination.startsWith(SEND_PREFIX) || !destination.endsWith(SEND_SUFFIX)
+                || destination.length() <= SEND_PREFIX.length() + SEND_SUFFIX.length()) {
+            return null;
+        }
+        return groupAliasRegistry.resolve(destination.substring(SEND_PREFIX.length(), destination.length() - SEND_SUFFIX.length()));
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.paritosh.cheapchats.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket in its GCRA form: a single atomic "theoretical arrival time" replaces the token count and
+// the last refill time, so taking a token is one compare-and-set and needs no lock.
+final class TokenBucket {
+
+    // time to earn one token
+    private final long intervalNanos;
+
+    // how far the arrival time may run ahead of now, i.e. the burst
+    private final long burstNanos;
+
+    private final AtomicLong arrival;
+
+    TokenBucket(double perSecond, int burst, long nowNanos) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / perSecond));
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.arrival = new AtomicLong(nowNanos);
+    }
+
+    // 0 when a token is available, otherwise the nanos until one is (nothing is taken)
+    long waitNanos(long nowNanos) {
+        long ahead = Math.max(arrival.get(), nowNanos) + intervalNanos - nowNanos;
+        return Math.max(0, ahead - burstNanos);
+    }
+
+    // Give back a token taken by tryAcquire
+    void refund() {
+        arrival.addAndGet(-intervalNanos);
+    }
+
+    // Time for an empty bucket to fill up again, after which it is no different from a new one
+    long refillNanos() {
+        return burstNanos;
+    }
+
+    // 0 when a token was taken, otherwise the nanos until one is available (nothing is taken)
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long ahead = next - nowNanos;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+}
@@ -1,16 +1,48 @@
 package com.paritosh.cheapchats.repositories;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.paritosh.cheapchats.models.ChatGroup;
 
 public interface ChatGroupRepository extends JpaRepository<ChatGroup, String> {
 
+    // Read-write rather than the inherited read-only default: joins, renames and cache loads follow
+    // group creation closely, so this must not go to a lagging replica
+    @Override
+    @Transactional
+    Optional<ChatGroup> findById(String groupName);
+
     // Find all groups with name: groupName
     boolean existsByGroupName(String groupName);
 
-    // Find all groups which are expired and have member: userName
-    List<ChatGroup> findByIsExpiredFalseAndMembersContaining(String username);
+    // Find all groups which are not expired and have member: username (index lookup on group_member.user_name)
+    @Transactional(readOnly = true)
+    @Query("SELECT g FROM GroupMember m JOIN ChatGroup g ON g.groupName = m.groupName "
+            + "WHERE m.userName = :username AND g.isExpired = false")
+    List<ChatGroup> findActiveGroupsForMember(@Param("username") String username);
+
+    // Expiry instants of all live groups, used to rebuild the expiry scheduler on startup
+    List<GroupExpiryView> findByIsExpiredFalse();
+
+    // Rename a group in place, one row (members and messages are moved by their own repositories)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE chat_group SET group_name = :newGroupName, expires_at = :expiresAt WHERE group_name = :groupName",
+            nativeQuery = true)
+    int renameGroup(@Param("groupName") String groupName, @Param("newGroupName") String newGroupName,
+            @Param("expiresAt") Instant expiresAt);
+
+    // Flag a single group as expired if it is still due (its expiry may have been extended meanwhile)
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChatGroup g SET g.isExpired = true "
+            + "WHERE g.groupName = :groupName AND g.isExpired = false AND g.expiresAt <= :now")
+    int markExpired(@Param("groupName") String groupName, @Param("now") Instant now);
 }
@@ -1,11 +1,44 @@
 package com.paritosh.cheapchats.repositories;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.paritosh.cheapchats.models.ChatMessage;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     List<ChatMessage> findByGroupNameOrderByTimestampAsc(String groupName);
-} 
\ No newline at end of file
+
+    // Read-write rather than the inherited read-only default: deletes look a message up right after flushing it,
+    // so this must not go to a lagging replica
+    @Override
+    @Transactional
+    Optional<ChatMessage> findById(Long id);
+
+    // Newest messages of a group, served by the (group_name, timestamp, id) index
+    @Query("SELECT m.id AS id, m.sender AS sender, m.content AS content, m.timestamp AS timestamp, m.type AS type "
+            + "FROM ChatMessage m WHERE m.groupName = :groupName "
+            + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessageView> findLatest(@Param("groupName") String groupName, Limit limit);
+
+    // Messages strictly older than the (timestamp, id) cursor, newest first (older pages tolerate replica lag)
+    @Transactional(readOnly = true)
+    @Query("SELECT m.id AS id, m.sender AS sender, m.content AS content, m.timestamp AS timestamp, m.type AS type "
+            + "FROM ChatMessage m WHERE m.groupName = :groupName AND m.timestamp <= :timestamp "
+            + "AND (m.timestamp < :timestamp OR m.id < :id) "
+            + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessageView> findBefore(@Param("groupName") String groupName, @Param("timestamp") LocalDateTime timestamp,
+            @Param("id") Long id, Limit limit);
+
+    // Move every message of a group to its new name with one set-based UPDATE
+    @Modifying
+    @Query("UPDATE ChatMessage m SET m.groupName = :newGroupName WHERE m.groupName = :groupName")
+    int renameGroup(@Param("groupName") String groupName, @Param("newGroupName") String newGroupName);
+}
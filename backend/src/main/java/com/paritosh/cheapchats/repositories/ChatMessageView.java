@@ -0,0 +1,17 @@
+package com.paritosh.cheapchats.repositories;
+
+import java.time.LocalDateTime;
+
+// Read-only projection of a chat message, history reads never build managed ChatMessage entities
+public interface ChatMessageView {
+
+    Long getId();
+
+    String getSender();
+
+    String getContent();
+
+    LocalDateTime getTimestamp();
+
+    String getType();
+}
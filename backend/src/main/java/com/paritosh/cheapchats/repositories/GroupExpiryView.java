@@ -0,0 +1,11 @@
+package com.paritosh.cheapchats.repositories;
+
+import java.time.Instant;
+
+// Just enough of a ChatGroup to schedule its expiry
+public interface GroupExpiryView {
+
+    String getGroupName();
+
+    Instant getExpiresAt();
+}
@@ -0,0 +1,39 @@
+package com.paritosh.cheapchats.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.paritosh.cheapchats.models.GroupMember;
+
+public interface GroupMemberRepository extends JpaRepository<GroupMember, Long> {
+
+    boolean existsByGroupNameAndUserName(String groupName, String userName);
+
+    // Member names of a group in join order
+    @Query("SELECT m.userName FROM GroupMember m WHERE m.groupName = :groupName ORDER BY m.joinedAt, m.id")
+    List<String> findUserNamesByGroupName(@Param("groupName") String groupName);
+
+    // Single-row idempotent insert, returns 0 when the user already is a member
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO group_member (group_name, user_name, joined_at) VALUES (:groupName, :userName, now()) "
+            + "ON CONFLICT (group_name, user_name) DO NOTHING", nativeQuery = true)
+    int addMember(@Param("groupName") String groupName, @Param("userName") String userName);
+
+    // Single-row delete through the (group_name, user_name) unique index
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM GroupMember m WHERE m.groupName = :groupName AND m.userName = :userName")
+    int removeMember(@Param("groupName") String groupName, @Param("userName") String userName);
+
+    // Move every membership of a group to its new name
+    @Modifying
+    @Transactional
+    @Query("UPDATE GroupMember m SET m.groupName = :newGroupName WHERE m.groupName = :groupName")
+    int renameGroup(@Param("groupName") String groupName, @Param("newGroupName") String newGroupName);
+}
@@ -1,9 +1,19 @@
 package com.paritosh.cheapchats.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.paritosh.cheapchats.models.User;
 
 public interface UserRepository extends JpaRepository<User, String> {
-    
+
+    // Creates the user unless the name is taken, one round trip and safe against concurrent logins
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO users (username, session_id) VALUES (:userName, :sessionId) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("userName") String userName, @Param("sessionId") String sessionId);
 }
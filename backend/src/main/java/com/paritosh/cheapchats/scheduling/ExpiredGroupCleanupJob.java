@@ -0,0 +1,182 @@
+package com.paritosh.cheapchats.scheduling;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.paritosh.cheapchats.cache.GroupCache;
+import com.paritosh.cheapchats.cache.RecentMessageCache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+// Reclaims expired groups with set-based deletes in bounded chunks.
+// Every statement runs in its own short transaction, so no table stays locked for long.
+// With chat_message partitioned (MessagePartitionManager) their messages go with whole partitions instead.
+@Component
+@Slf4j
+public class ExpiredGroupCleanupJob {
+
+    private static final String SELECT_EXPIRED_GROUPS = "SELECT group_name FROM chat_group "
+            + "WHERE is_expired AND (expires_at IS NULL OR expires_at < :cutoff) LIMIT :groups";
+
+    private static final String DELETE_MESSAGES = "DELETE FROM chat_message WHERE id IN "
+            + "(SELECT id FROM chat_message WHERE group_name IN (:names) LIMIT :chunk)";
+
+    private static final String DELETE_MEMBERS = "DELETE FROM group_member WHERE id IN "
+            + "(SELECT id FROM group_member WHERE group_name IN (:names) LIMIT :chunk)";
+
+    private static final String DELETE_GROUPS = "DELETE FROM chat_group WHERE group_name IN (:names) AND is_expired";
+
+    // messages left behind by groups deleted before messages were purged with them
+    private static final String DELETE_ORPHANED_MESSAGES = "DELETE FROM chat_message WHERE id IN "
+            + "(SELECT m.id FROM chat_message m WHERE NOT EXISTS "
+            + "(SELECT 1 FROM chat_group g WHERE g.group_name = m.group_name) LIMIT :chunk)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final RecentMessageCache recentMessageCache;
+    private final GroupCache groupCache;
+    private final MessagePartitionManager messagePartitionManager;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final int groupsPerPass;
+    private final Duration retention;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ExpiredGroupCleanupJob(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            RecentMessageCache recentMessageCache,
+            GroupCache groupCache,
+            MessagePartitionManager messagePartitionManager,
+            MeterRegistry meterRegistry,
+            @Value("${cheapchats.cleanup.chunk-size:5000}") int chunkSize,
+            @Value("${cheapchats.cleanup.groups-per-pass:100}") int groupsPerPass,
+            @Value("${cheapchats.cleanup.retention-minutes:10}") long retentionMinutes
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.recentMessageCache = recentMessageCache;
+        this.groupCache = groupCache;
+        this.messagePartitionManager = messagePartitionManager;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.groupsPerPass = Math.max(1, groupsPerPass);
+        this.retention = Duration.ofMinutes(Math.max(0, retentionMinutes));
+    }
+
+    // Delete expired groups once they are past the retention window, with their members and messages
+    @Scheduled(fixedDelayString = "${cheapchats.cleanup.interval-ms:60000}", initialDelayString = "${cheapchats.cleanup.initial-delay-ms:30000}")
+    public void cleanUp() {
+
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Timestamp cutoff = Timestamp.from(Instant.now().minus(retention));
+            long groups = 0;
+
+            List<String> names;
+            do {
+                names = jdbcTemplate.queryForList(SELECT_EXPIRED_GROUPS,
+                        Map.of("cutoff", cutoff, "groups", groupsPerPass), String.class);
+                if (names.isEmpty()) {
+                    break;
+                }
+
+                if (!messagePartitionManager.isActive()) {
+                    deleteInChunks("chat_message", DELETE_MESSAGES, Map.of("names", names));
+                }
+                deleteInChunks("group_member", DELETE_MEMBERS, Map.of("names", names));
+                deleteChunk("chat_group", DELETE_GROUPS, Map.of("names", names));
+
+                names.forEach(recentMessageCache::evictGroup);
+                names.forEach(groupCache::invalidate);
+                groups += names.size();
+            } while (names.size() == groupsPerPass);
+
+            if (groups > 0) {
+                log.info("Cleaned up {} expired groups", groups);
+            }
+        } finally {
+            sample.stop(Timer.builder("chat.cleanup.pass.duration")
+                    .description("Time per expired group cleanup pass")
+                    .register(meterRegistry));
+            running.set(false);
+        }
+    }
+
+    // Delete every message of one group, used when a group is deleted outright
+    public long purgeMessages(String groupName) {
+        return deleteInChunks("chat_message", DELETE_MESSAGES, Map.of("names", List.of(groupName)));
+    }
+
+    // Delete every membership of one group, with the group row or before its name is taken again
+    public long purgeMembers(String groupName) {
+        return deleteInChunks("group_member", DELETE_MEMBERS, Map.of("names", List.of(groupName)));
+    }
+
+    // Messages an earlier group of this name left for the partition manager, purged before the name is taken again
+    public long purgeLeftoverMessages(String groupName) {
+        return messagePartitionManager.isActive() ? purgeMessages(groupName) : 0;
+    }
+
+    // One-off pass for messages orphaned by group deletes that predate purgeMessages
+    // (with partitions, messages of deleted groups are expected until their partition is dropped)
+    @EventListener(ApplicationReadyEvent.class)
+    public void purgeOrphanedMessages() {
+        if (messagePartitionManager.isActive()) {
+            return;
+        }
+        long deleted = deleteInChunks("chat_message", DELETE_ORPHANED_MESSAGES, Map.of());
+        if (deleted > 0) {
+            log.info("Deleted {} orphaned messages", deleted);
+        }
+    }
+
+    private long deleteInChunks(String table, String sql, Map<String, Object> params) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = deleteChunk(table, sql, params);
+            total += deleted;
+        } while (deleted >= chunkSize);
+        return total;
+    }
+
+    private int deleteChunk(String table, String sql, Map<String, Object> params) {
+
+        Map<String, Object> chunkParams = new HashMap<>(params);
+        chunkParams.put("chunk", chunkSize);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int deleted = jdbcTemplate.update(sql, chunkParams);
+        sample.stop(Timer.builder("chat.cleanup.chunk.duration")
+                .description("Time per cleanup delete statement")
+                .tag("table", table)
+                .register(meterRegistry));
+
+        Counter.builder("chat.cleanup.rows.reclaimed")
+                .description("Rows deleted by the expired-group cleanup")
+                .tag("table", table)
+                .register(meterRegistry)
+                .increment(deleted);
+
+        return deleted;
+    }
+
+}
@@ -0,0 +1,237 @@
+package com.paritosh.cheapchats.scheduling;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.paritosh.cheapchats.cache.GroupCache;
+import com.paritosh.cheapchats.cache.GroupCache.GroupSnapshot;
+import com.paritosh.cheapchats.cache.RecentMessageCache;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.GroupExpiryDto;
+import com.paritosh.cheapchats.messaging.GroupBroadcaster;
+import com.paritosh.cheapchats.metrics.ChatMetrics;
+import com.paritosh.cheapchats.repositories.ChatGroupRepository;
+import com.paritosh.cheapchats.repositories.GroupExpiryView;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Fires exactly when a group is due instead of sweeping every group on a timer.
+// Each group has one live entry in a DelayQueue; rescheduling leaves the old entry behind as a stale no-op.
+// Warning ticks a few minutes before expiry push the countdown to the group's expiry topic.
+@Component
+@Slf4j
+public class GroupExpiryScheduler {
+
+    private final ChatGroupRepository chatGroupRepository;
+    private final GroupBroadcaster groupBroadcaster;
+    private final RecentMessageCache recentMessageCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChatMetrics chatMetrics;
+    private final GroupCache groupCache;
+
+    // minutes before expiry at which subscribers get a fresh countdown
+    private final List<Long> warnMinutes;
+
+    private final DelayQueue<Tick> queue = new DelayQueue<>();
+    private final Map<String, Expiry> scheduled = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public GroupExpiryScheduler(ChatGroupRepository chatGroupRepository, GroupBroadcaster groupBroadcaster,
+            RecentMessageCache recentMessageCache, JdbcTemplate jdbcTemplate, ChatMetrics chatMetrics,
+            GroupCache groupCache, MeterRegistry meterRegistry,
+            @Value("${cheapchats.groups.expiry.warn-minutes:5,1}") List<Long> warnMinutes) {
+        this.chatGroupRepository = chatGroupRepository;
+        this.groupBroadcaster = groupBroadcaster;
+        this.recentMessageCache = recentMessageCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chatMetrics = chatMetrics;
+        this.groupCache = groupCache;
+        this.warnMinutes = warnMinutes.stream().filter(minutes -> minutes > 0).distinct().toList();
+
+        Gauge.builder("chat.group.expiry.scheduled", scheduled, Map::size)
+                .description("Groups waiting to expire on this node").register(meterRegistry);
+    }
+
+    // Rebuild the schedule from the database and start firing
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+
+        migrateLegacyExpiry();
+
+        int count = 0;
+        for (GroupExpiryView group : chatGroupRepository.findByIsExpiredFalse()) {
+            if (group.getExpiresAt() != null) {
+                schedule(group.getGroupName(), group.getExpiresAt());
+                count++;
+            }
+        }
+
+        running = true;
+        worker = new Thread(this::run, "group-expiry");
+        worker.setDaemon(true);
+        worker.start();
+
+        log.info("Group expiry scheduler started with {} live groups", count);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    // Schedule (or reschedule) a group to expire at the given instant
+    public void schedule(String groupName, Instant expiresAt) {
+        Expiry expiry = new Expiry(groupName, expiresAt);
+        scheduled.put(groupName, expiry);
+        queue.put(new Tick(expiry, 0));
+
+        Instant now = Instant.now();
+        for (long minutes : warnMinutes) {
+            Tick warning = new Tick(expiry, minutes);
+            if (warning.firesAt().isAfter(now)) {
+                queue.put(warning);
+            }
+        }
+    }
+
+    // Stop tracking a group that was deleted or renamed
+    public void cancel(String groupName) {
+        scheduled.remove(groupName);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Tick tick = queue.take();
+                Expiry expiry = tick.expiry();
+
+                if (tick.minutesBefore() > 0) {
+                    // superseded warnings are dropped
+                    if (expiry.equals(scheduled.get(expiry.groupName()))) {
+                        warn(expiry);
+                    }
+                    continue;
+                }
+
+                // superseded by a later schedule() or cancel()
+                if (!scheduled.remove(expiry.groupName(), expiry)) {
+                    continue;
+                }
+
+                expire(expiry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Group expiry failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void expire(Expiry expiry) {
+
+        String groupName = expiry.groupName();
+        Instant now = Instant.now();
+
+        // single-row update, a no-op if the expiry was extended or another node got there first
+        if (chatGroupRepository.markExpired(groupName, now) == 0) {
+            return;
+        }
+
+        chatMetrics.expiryLag(now.toEpochMilli() - expiry.expiresAt().toEpochMilli());
+
+        recentMessageCache.evictGroup(groupName);
+        groupCache.invalidate(groupName);
+
+        ChatMessageDto expiredDto = new ChatMessageDto();
+        expiredDto.setSender("system");
+        expiredDto.setContent("Group expired");
+        expiredDto.setType("EXPIRED");
+        expiredDto.setTimestamp(LocalDateTime.now().toString());
+
+        groupBroadcaster.broadcast(groupName, expiredDto);
+        groupBroadcaster.broadcastExpiry(GroupExpiryDto.of(groupName, expiry.expiresAt(), true, now));
+
+        log.info("EXPIRED: Group {}", groupName);
+    }
+
+    private void warn(Expiry expiry) {
+
+        String groupName = expiry.groupName();
+
+        // the expiry may have been extended on another node, follow the stored one
+        Optional<GroupSnapshot> group = groupCache.group(groupName, chatGroupRepository::findById);
+        if (group.isEmpty() || group.get().expired() || group.get().expiresAt() == null) {
+            return;
+        }
+        // the stored value only has microseconds, so compare at that precision
+        if (!expiry.expiresAt().truncatedTo(ChronoUnit.MICROS).equals(group.get().expiresAt().truncatedTo(ChronoUnit.MICROS))) {
+            schedule(groupName, group.get().expiresAt());
+            return;
+        }
+
+        groupBroadcaster.broadcastExpiry(GroupExpiryDto.of(groupName, expiry.expiresAt(), false, Instant.now()));
+    }
+
+    // Groups created before expires_at existed only have a minutes-left string in expires_in
+    private void migrateLegacyExpiry() {
+
+        Boolean hasLegacyColumn = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.columns "
+                        + "WHERE table_name = 'chat_group' AND column_name = 'expires_in')", Boolean.class);
+
+        if (Boolean.TRUE.equals(hasLegacyColumn)) {
+            int migrated = jdbcTemplate.update(
+                    "UPDATE chat_group SET expires_at = now() + make_interval(mins => CAST(expires_in AS integer)) "
+                            + "WHERE expires_at IS NULL AND expires_in ~ '^[0-9]+$'");
+            if (migrated > 0) {
+                log.info("Migrated expiry of {} groups from expires_in to expires_at", migrated);
+            }
+        }
+    }
+
+    private record Expiry(String groupName, Instant expiresAt) {
+    }
+
+    // Fires minutesBefore the expiry, 0 for the expiry itself
+    private record Tick(Expiry expiry, long minutesBefore) implements Delayed {
+
+        Instant firesAt() {
+            return expiry.expiresAt().minus(Duration.ofMinutes(minutesBefore));
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(firesAt().toEpochMilli() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return firesAt().compareTo(((Tick) other).firesAt());
+        }
+    }
+
+}
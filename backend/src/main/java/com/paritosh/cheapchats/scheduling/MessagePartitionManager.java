@@ -0,0 +1,180 @@
+package com.paritosh.cheapchats.scheduling;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// Keeps chat_message as daily range partitions on timestamp once db/partition-chat-message.sql has converted it:
+// creates the partitions for the next few days ahead of time and drops a past day's partition as a whole once
+// every group with messages in it is gone or expired past the cleanup retention. Dropping a partition reclaims
+// its space at once, where deleting the same rows one by one leaves dead tuples for autovacuum.
+// Inactive (and the cleanup job keeps deleting messages itself) unless enabled and the table is partitioned.
+@Component
+@Slf4j
+public class MessagePartitionManager {
+
+    static final String PARTITION_PREFIX = "chat_message_p";
+    static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final String IS_PARTITIONED = "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table "
+            + "WHERE partrelid = to_regclass('chat_message'))";
+
+    private static final String LIST_PARTITIONS = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+            + "WHERE i.inhparent = to_regclass('chat_message')";
+
+    // a group keeps its messages until the cleanup job would delete it (see ExpiredGroupCleanupJob)
+    private static final String HAS_LIVE_GROUP = "SELECT EXISTS (SELECT 1 FROM chat_group g "
+            + "WHERE NOT (g.is_expired AND (g.expires_at IS NULL OR g.expires_at < ?)) "
+            + "AND EXISTS (SELECT 1 FROM %s m WHERE m.group_name = g.group_name))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Supplier<LocalDate> today;
+    private final boolean enabled;
+    private final int premakeDays;
+    private final Duration retention;
+    private final long lockTimeoutMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // whether chat_message is partitioned, looked up once
+    private volatile Boolean partitioned;
+
+    @Autowired
+    public MessagePartitionManager(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${cheapchats.messages.partitions.enabled:false}") boolean enabled,
+            @Value("${cheapchats.messages.partitions.premake-days:3}") int premakeDays,
+            @Value("${cheapchats.messages.partitions.lock-timeout-ms:2000}") long lockTimeoutMs,
+            @Value("${cheapchats.cleanup.retention-minutes:10}") long retentionMinutes
+    ) {
+        this(jdbcTemplate, transactionTemplate, meterRegistry, enabled, premakeDays, lockTimeoutMs, retentionMinutes, LocalDate::now);
+    }
+
+    MessagePartitionManager(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+            boolean enabled, int premakeDays, long lockTimeoutMs, long retentionMinutes, Supplier<LocalDate> today) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.premakeDays = Math.max(1, premakeDays);
+        this.retention = Duration.ofMinutes(Math.max(0, retentionMinutes));
+        this.lockTimeoutMs = Math.max(1, lockTimeoutMs);
+        this.today = today;
+    }
+
+    // True when message retention is left to partition drops
+    public boolean isActive() {
+        if (!enabled) {
+            return false;
+        }
+        Boolean known = partitioned;
+        if (known == null) {
+            known = Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class));
+            if (!known) {
+                log.warn("Message partitioning is enabled but chat_message is not partitioned, "
+                        + "run db/partition-chat-message.sql first; messages are deleted row by row meanwhile");
+            }
+            partitioned = known;
+        }
+        return known;
+    }
+
+    @Scheduled(fixedDelayString = "${cheapchats.messages.partitions.interval-ms:3600000}", initialDelayString = "${cheapchats.messages.partitions.initial-delay-ms:10000}")
+    public void maintain() {
+
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (isActive()) {
+                createAhead();
+                dropExpired();
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Partitions from today through premake-days ahead, so inserts never wait for one (a missing day lands in the default partition)
+    void createAhead() {
+        LocalDate day = today.get();
+        for (int i = 0; i <= premakeDays; i++) {
+            LocalDate from = day.plusDays(i);
+            String sql = "CREATE TABLE IF NOT EXISTS " + partitionName(from) + " PARTITION OF chat_message "
+                    + "FOR VALUES FROM ('" + from + "') TO ('" + from.plusDays(1) + "')";
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (DataAccessException e) {
+                // e.g. rows for that day already sit in the default partition
+                log.warn("Could not create message partition for {}: {}", from, e.getMessage());
+            }
+        }
+    }
+
+    // Drops past days whose groups are all gone. Messages are only inserted for today, so a past day cannot gain a live
+    // group after the check; the drop gives up after lock-timeout-ms rather than queue every query behind a long read.
+    void dropExpired() {
+        LocalDate day = today.get();
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(retention));
+
+        for (String partition : jdbcTemplate.queryForList(LIST_PARTITIONS, String.class)) {
+            LocalDate partitionDay = dayOf(partition);
+            if (partitionDay == null || !partitionDay.isBefore(day)
+                    || Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_LIVE_GROUP.formatted(partition), Boolean.class, cutoff))) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                });
+            } catch (DataAccessException e) {
+                log.warn("Could not drop message partition {}, retrying next run: {}", partition, e.getMessage());
+                continue;
+            }
+            log.info("Dropped message partition {}", partition);
+            Counter.builder("chat.partitions.dropped")
+                    .description("Daily chat_message partitions dropped once all their groups expired")
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+    }
+
+    // Day of a partition this manager (or the migration script) created, null for any other table such as the default
+    static LocalDate dayOf(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+}
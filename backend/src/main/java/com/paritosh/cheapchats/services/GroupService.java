@@ -23,6 +23,4 @@ public interface GroupService {
     void deleteGroup(String groupName);
 
     void deleteExpiredGroups();
-
-    void updateExpiryTimes();
 }
@@ -0,0 +1,31 @@
+package com.paritosh.cheapchats.services;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public interface MessageExportService {
+
+    enum Format {
+
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    // Whole transcript of a group, oldest first, written as the rows are read; null when too many exports are running
+    StreamingResponseBody export(String groupName, Format format, boolean gzip);
+}
@@ -0,0 +1,9 @@
+package com.paritosh.cheapchats.services;
+
+import com.paritosh.cheapchats.dto.MessagePage;
+
+public interface MessageHistoryService {
+
+    // Page of messages older than the cursor (or the latest ones when before is null), oldest first
+    MessagePage getMessages(String groupName, String before, Integer limit);
+}
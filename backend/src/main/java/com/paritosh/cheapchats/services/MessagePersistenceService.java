@@ -0,0 +1,15 @@
+package com.paritosh.cheapchats.services;
+
+import com.paritosh.cheapchats.models.ChatMessage;
+
+public interface MessagePersistenceService {
+
+    // Assigns an id to the message and queues it for a batched insert
+    ChatMessage persist(ChatMessage message);
+
+    // Blocks until the message is written if it is still queued
+    void flushIfPending(Long messageId);
+
+    // Writes every queued message
+    void flush();
+}
@@ -0,0 +1,9 @@
+package com.paritosh.cheapchats.services;
+
+import com.paritosh.cheapchats.dto.MessageSearchPage;
+
+public interface MessageSearchService {
+
+    // Ranked page of a group's chat messages matching a web-search style query ("quoted phrases", -excluded, or)
+    MessageSearchPage search(String groupName, String query, Integer page, Integer size);
+}
@@ -0,0 +1,140 @@
+package com.paritosh.cheapchats.services.impl;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.paritosh.cheapchats.cache.GroupCache;
+import com.paritosh.cheapchats.cache.GroupCache.GroupSnapshot;
+import com.paritosh.cheapchats.messaging.ClusterFanout;
+import com.paritosh.cheapchats.models.ChatGroup;
+import com.paritosh.cheapchats.repositories.ChatGroupRepository;
+import com.paritosh.cheapchats.repositories.GroupMemberRepository;
+import com.paritosh.cheapchats.services.GroupService;
+
+// Read-through cache in front of GroupServiceImpl for group lookups and membership checks.
+// Every write goes to GroupServiceImpl, then invalidates the group here and, with cluster fan-out, on the other nodes.
+@Service
+@Primary
+@ConditionalOnProperty(name = "cheapchats.groups.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingGroupService implements GroupService {
+
+    @Autowired
+    private GroupServiceImpl delegate;
+
+    @Autowired
+    private GroupCache groupCache;
+
+    @Autowired
+    private ChatGroupRepository chatGroupRepository;
+
+    @Autowired
+    private GroupMemberRepository groupMemberRepository;
+
+    @Autowired
+    private ObjectProvider<ClusterFanout> clusterFanout;
+
+    @Override
+    public ChatGroup createChatGroup(String groupName, String userName, int validMinutes) {
+        ChatGroup group = delegate.createChatGroup(groupName, userName, validMinutes);
+        // drops a cached "no such group"
+        invalidate(groupName);
+        return group;
+    }
+
+    @Override
+    public Optional<ChatGroup> joinChatGroup(String groupName, String userName) {
+
+        Optional<GroupSnapshot> cached = groupCache.group(groupName, chatGroupRepository::findById);
+
+        // an expired group never takes new members, and a member joining again is a no-op
+        if (cached.isPresent()) {
+            GroupSnapshot group = cached.get();
+            Set<String> members = members(groupName);
+            if (group.expired() || members.contains(userName)) {
+                return Optional.of(group.toChatGroup(members));
+            }
+        }
+
+        Optional<ChatGroup> joined = delegate.joinChatGroup(groupName, userName);
+        if (cached.isEmpty()) {
+            // the group may have been created on another node since it was cached as missing
+            invalidate(groupName);
+        } else {
+            invalidateMembers(groupName);
+        }
+        return joined;
+    }
+
+    @Override
+    public boolean leaveChatGroup(String groupName, String userName) {
+        boolean left = delegate.leaveChatGroup(groupName, userName);
+        if (left) {
+            invalidateMembers(groupName);
+        }
+        return left;
+    }
+
+    @Override
+    public boolean updateGroupInfo(String groupName, String newName, Integer newExpiryInMins) {
+        try {
+            return delegate.updateGroupInfo(groupName, newName, newExpiryInMins);
+        } finally {
+            invalidate(groupName);
+            if (newName != null && !newName.isEmpty()) {
+                invalidate(newName);
+            }
+        }
+    }
+
+    @Override
+    public void removeMember(String groupName, String targetMember) {
+        delegate.removeMember(groupName, targetMember);
+        invalidateMembers(groupName);
+    }
+
+    @Override
+    public List<ChatGroup> getGroupsForUser(String username) {
+        return delegate.getGroupsForUser(username);
+    }
+
+    @Override
+    public ChatGroup getGroupByName(String groupName) {
+        return groupCache.group(groupName, chatGroupRepository::findById)
+                .map(group -> group.toChatGroup(members(groupName)))
+                .orElse(null);
+    }
+
+    @Override
+    public void deleteGroup(String groupName) {
+        delegate.deleteGroup(groupName);
+        invalidate(groupName);
+    }
+
+    @Override
+    public void deleteExpiredGroups() {
+        // the cleanup job invalidates every group it deletes
+        delegate.deleteExpiredGroups();
+    }
+
+    private Set<String> members(String groupName) {
+        return groupCache.members(groupName, groupMemberRepository::findUserNamesByGroupName);
+    }
+
+    private void invalidate(String groupName) {
+        groupCache.invalidate(groupName);
+        clusterFanout.ifAvailable(fanout -> fanout.invalidateGroup(groupName, false));
+    }
+
+    private void invalidateMembers(String groupName) {
+        groupCache.invalidateMembers(groupName);
+        clusterFanout.ifAvailable(fanout -> fanout.invalidateGroup(groupName, true));
+    }
+
+}
@@ -1,17 +1,30 @@
 package com.paritosh.cheapchats.services.impl;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.paritosh.cheapchats.cache.RecentMessageCache;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.GroupExpiryDto;
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
+import com.paritosh.cheapchats.messaging.GroupBroadcaster;
+import com.paritosh.cheapchats.metrics.ChatMetrics;
 import com.paritosh.cheapchats.models.ChatGroup;
-import com.paritosh.cheapchats.models.ChatMessage;
 import com.paritosh.cheapchats.repositories.ChatGroupRepository;
 import com.paritosh.cheapchats.repositories.ChatMessageRepository;
+import com.paritosh.cheapchats.repositories.GroupMemberRepository;
+import com.paritosh.cheapchats.scheduling.ExpiredGroupCleanupJob;
+import com.paritosh.cheapchats.scheduling.GroupExpiryScheduler;
 import com.paritosh.cheapchats.services.GroupService;
+import com.paritosh.cheapchats.services.MessagePersistenceService;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -25,63 +38,115 @@ public class GroupServiceImpl implements GroupService {
     @Autowired
     private ChatMessageRepository chatMessageRepository;
 
+    @Autowired
+    private GroupMemberRepository groupMemberRepository;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private GroupExpiryScheduler groupExpiryScheduler;
+
+    @Autowired
+    private ExpiredGroupCleanupJob expiredGroupCleanupJob;
+
+    @Autowired
+    private MessagePersistenceService messagePersistenceService;
+
+    @Autowired
+    private GroupAliasRegistry groupAliasRegistry;
+
+    @Autowired
+    private GroupBroadcaster groupBroadcaster;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
     @Override
     public ChatGroup createChatGroup(String groupName, String createdBy, int validMinutes) {
 
+        long started = System.nanoTime();
+
         // Validate input parameters
         if (groupName == null || groupName.isEmpty() || validMinutes <= 0 || createdBy == null || createdBy.isEmpty()) {
 
             log.info("Invalid group creation parameters: {}, {}, {}", groupName, validMinutes, createdBy);
+            chatMetrics.groupOperation("create", "rejected", started);
             throw new IllegalArgumentException("Invalid group name, creator or validity period.");
 
         }
 
         if (chatGroupRepository.existsByGroupName(groupName)) {
             log.info("Group already exists: {}", groupName);
+            chatMetrics.groupOperation("create", "rejected", started);
             throw new IllegalArgumentException("Group with this groupName already exists.");
         }
 
+        // the old name of a recently renamed group still routes to it
+        if (groupAliasRegistry.isAlias(groupName)) {
+            log.info("Group name {} is still an alias of {}", groupName, groupAliasRegistry.resolve(groupName));
+            chatMetrics.groupOperation("create", "rejected", started);
+            throw new IllegalArgumentException("Group with this groupName already exists (renamed recently).");
+        }
+
+        // memberships an earlier group with this name left behind must not carry over, nor messages
+        // still waiting for their partition to be dropped
+        expiredGroupCleanupJob.purgeMembers(groupName);
+        expiredGroupCleanupJob.purgeLeftoverMessages(groupName);
+
         // create a new chat group
         ChatGroup chatGroup = new ChatGroup();
 
         // set properties
         chatGroup.setGroupName(groupName);
         chatGroup.setCreatedBy(createdBy);
-        chatGroup.setExpiresIn(String.valueOf(validMinutes));
+        chatGroup.setExpiresAt(expiresIn(validMinutes));
         chatGroup.setExpired(false);
-        chatGroup.getMembers().add(createdBy);
 
         // log group creation
         log.info("Group created: {} by {}, expires at: {}", groupName, createdBy, validMinutes);
 
         // save changes
-        return chatGroupRepository.save(chatGroup);
+        ChatGroup savedGroup = chatGroupRepository.save(chatGroup);
+        groupMemberRepository.addMember(groupName, createdBy);
+        savedGroup.getMembers().add(createdBy);
+        groupExpiryScheduler.schedule(groupName, savedGroup.getExpiresAt());
+
+        // a new group has no history, so its recent-messages buffer is complete from the start
+        recentMessageCache.startGroup(groupName);
+
+        chatMetrics.groupOperation("create", "created", started);
+        return savedGroup;
 
     }
 
     @Override
     public Optional<ChatGroup> joinChatGroup(String groupName, String userName) {
 
+        long started = System.nanoTime();
+        String[] outcome = { "missing" };
+
         Optional<ChatGroup> groupOptional = chatGroupRepository.findById(groupName);
 
         // if the group exists and is not expired
         groupOptional.ifPresent(group -> {
 
-            // if user is not present & group not expired
-            if (!group.getMembers().contains(userName) && !group.isExpired()) {
+            outcome[0] = "noop";
 
-                // add user if they are not already a member
-                group.getMembers().add(userName);
+            // single-row insert, a no-op if the user already is a member
+            if (!group.isExpired() && groupMemberRepository.addMember(groupName, userName) > 0) {
 
                 // log user joining
                 log.info("JOIN: User {} joined group: {}", userName, groupName);
-
-                // save changes
-                chatGroupRepository.save(group);
+                outcome[0] = "joined";
 
             }
         });
 
+        chatMetrics.groupOperation("join", outcome[0], started);
         return groupOptional;
 
     }
@@ -89,31 +154,21 @@ public class GroupServiceImpl implements GroupService {
     @Override
     public boolean leaveChatGroup(String groupName, String userName) {
 
-        Optional<ChatGroup> groupOptional = chatGroupRepository.findById(groupName);
-
-        // Check if the group exists
-        if (groupOptional.isPresent()) {
-
-            ChatGroup group = groupOptional.get();
-
-            // Check if user is a member of the group
-            if (group.getMembers().contains(userName)) {
+        long started = System.nanoTime();
 
-                // Remove the user from the group
-                group.getMembers().remove(userName);
+        // single-row delete, nothing to remove if the user was not a member
+        if (groupMemberRepository.removeMember(groupName, userName) > 0) {
 
-                // log user leaving
-                log.info("LEFT: User {} left group {}", userName, groupName);
+            // log user leaving
+            log.info("LEFT: User {} left group {}", userName, groupName);
+            chatMetrics.groupOperation("leave", "left", started);
 
-                // save changes
-                chatGroupRepository.save(group);
-
-                // Successfully left the group
-                return true;
-            }
+            // Successfully left the group
+            return true;
         }
 
         // User was not a member or group does not exist
+        chatMetrics.groupOperation("leave", "noop", started);
         return false;
 
     }
@@ -123,46 +178,71 @@ public class GroupServiceImpl implements GroupService {
 
         log.info("inside updateGroupName");
 
+        long started = System.nanoTime();
+
         if (newGroupName == null && newExpiryInMins == null) {
             log.error("invalid newGroupName: {} & expiryMins: {} passed", newGroupName, newExpiryInMins);
+            chatMetrics.groupOperation("rename", "rejected", started);
             return false;
         }
 
         ChatGroup oldGroup = chatGroupRepository.findById(groupName).get();
-        ChatGroup newGroup = new ChatGroup();
 
         // Check if the group exists
         if (newGroupName != null && !newGroupName.equals("") && !newGroupName.equals(groupName)) {
 
-            // Check if a group with new name already exists
-            if (chatGroupRepository.existsByGroupName(newGroupName)) {
+            // Check if a group with new name already exists, or the name still routes to another renamed group
+            if (chatGroupRepository.existsByGroupName(newGroupName)
+                    || groupAliasRegistry.isAlias(newGroupName) && !groupAliasRegistry.resolve(newGroupName).equals(groupName)) {
 
                 log.error("Group with name {} already exists", newGroupName);
+                chatMetrics.groupOperation("rename", "rejected", started);
                 throw new IllegalArgumentException("Group with this name already exists");
 
             }
 
-            // Create new group with updated name
-            newGroup.setGroupName(newGroupName);
-            newGroup.setCreatedBy(oldGroup.getCreatedBy());
-            newGroup.setMembers(new ArrayList<>(oldGroup.getMembers()));
-            newGroup.setExpired(false);
-            newGroup.setExpiresIn(newExpiryInMins != null ? String.valueOf(newExpiryInMins) : oldGroup.getExpiresIn());
-
-            // Save new group
-            chatGroupRepository.save(newGroup);
-
-            // Update messages to point to new group
-            List<ChatMessage> messages = chatMessageRepository.findByGroupNameOrderByTimestampAsc(groupName);
-            for (ChatMessage message : messages) {
-                message.setGroupName(newGroupName);
+            Instant expiresAt = newExpiryInMins != null ? expiresIn(newExpiryInMins) : oldGroup.getExpiresAt();
+
+            // messages an earlier group with the new name left behind, purged before any live message can carry that name
+            expiredGroupCleanupJob.purgeLeftoverMessages(newGroupName);
+
+            // Route the old name to the new one first, so messages sent meanwhile land in the renamed group
+            groupAliasRegistry.register(groupName, newGroupName);
+            messagePersistenceService.flush();
+
+            try {
+                // One set-based UPDATE per table, all or nothing
+                transactionTemplate.executeWithoutResult(status -> {
+                    // leftover memberships under the new name would merge into the group (or clash on the unique index)
+                    expiredGroupCleanupJob.purgeMembers(newGroupName);
+                    chatGroupRepository.renameGroup(groupName, newGroupName, expiresAt);
+                    chatMessageRepository.renameGroup(groupName, newGroupName);
+                    groupMemberRepository.renameGroup(groupName, newGroupName);
+                });
+            } catch (RuntimeException e) {
+                groupAliasRegistry.unregister(groupName);
+                chatMetrics.groupOperation("rename", "failed", started);
+                throw e;
             }
-            chatMessageRepository.saveAll(messages);
 
-            // Delete old group
-            chatGroupRepository.delete(oldGroup);
+            groupExpiryScheduler.cancel(groupName);
+            groupExpiryScheduler.schedule(newGroupName, expiresAt);
+            recentMessageCache.evictGroup(groupName);
+            recentMessageCache.evictGroup(newGroupName);
+
+            // Tell subscribers of the old topic to move over, the alias keeps them served until they do
+            ChatMessageDto renameDto = new ChatMessageDto();
+            renameDto.setSender("system");
+            renameDto.setContent(newGroupName);
+            renameDto.setType("RENAME");
+            renameDto.setTimestamp(LocalDateTime.now().toString());
+            groupBroadcaster.broadcast(newGroupName, renameDto);
+            if (newExpiryInMins != null) {
+                groupBroadcaster.broadcastExpiry(GroupExpiryDto.of(newGroupName, expiresAt, false, Instant.now()));
+            }
 
             log.info("Group successfully renamed from {} to {}", groupName, newGroupName);
+            chatMetrics.groupOperation("rename", "renamed", started);
 
             // name updation successfull
             return true;
@@ -171,18 +251,22 @@ public class GroupServiceImpl implements GroupService {
         else if (newExpiryInMins != null) {
 
             // Only update expiry time
-            oldGroup.setExpiresIn(String.valueOf(newExpiryInMins));
+            oldGroup.setExpiresAt(expiresIn(newExpiryInMins));
 
             // save changes
             chatGroupRepository.save(oldGroup);
+            groupExpiryScheduler.schedule(groupName, oldGroup.getExpiresAt());
+            groupBroadcaster.broadcastExpiry(GroupExpiryDto.of(groupName, oldGroup.getExpiresAt(), false, Instant.now()));
 
             log.info("Updated expiry time for group {}", groupName);
+            chatMetrics.groupOperation("rename", "expiry_updated", started);
 
             // expiry time updation successfull
             return true;
         }
 
         log.warn("group {} already exists", groupName);
+        chatMetrics.groupOperation("rename", "noop", started);
 
         // group already exists
         return false;
@@ -193,10 +277,8 @@ public class GroupServiceImpl implements GroupService {
 
         log.info("inside removeMember");
 
-        // get group and remove user
-        ChatGroup group = chatGroupRepository.findById(groupName).get();
-        group.getMembers().remove(targetMember);
-        chatGroupRepository.save(group);
+        // single-row delete of the membership
+        groupMemberRepository.removeMember(groupName, targetMember);
 
         log.info("REMOVED: {} removed from {}", targetMember, groupName);
 
@@ -204,18 +286,33 @@ public class GroupServiceImpl implements GroupService {
 
     @Override
     public List<ChatGroup> getGroupsForUser(String userName) {
-        return chatGroupRepository.findByIsExpiredFalseAndMembersContaining(userName);
+        return chatGroupRepository.findActiveGroupsForMember(userName);
     }
 
     @Override
     public ChatGroup getGroupByName(String groupName) {
-        return chatGroupRepository.findById(groupName).orElse(null);
+        ChatGroup group = chatGroupRepository.findById(groupName).orElse(null);
+        if (group != null) {
+            group.setMembers(groupMemberRepository.findUserNamesByGroupName(groupName));
+        }
+        return group;
     }
 
     @Override
     public void deleteGroup(String groupName) {
-        chatGroupRepository.deleteById(groupName);
-        log.info("Group deleted: {}", groupName);
+        long started = System.nanoTime();
+        // messages first, in bounded chunks, so none are left orphaned; queued sends go in before the purge
+        messagePersistenceService.flush();
+        long purged = expiredGroupCleanupJob.purgeMessages(groupName);
+        // memberships go with the group row, all or nothing, so a later group of this name starts without members
+        transactionTemplate.executeWithoutResult(status -> {
+            expiredGroupCleanupJob.purgeMembers(groupName);
+            chatGroupRepository.deleteById(groupName);
+        });
+        groupExpiryScheduler.cancel(groupName);
+        recentMessageCache.evictGroup(groupName);
+        log.info("Group deleted: {} ({} messages)", groupName, purged);
+        chatMetrics.groupOperation("delete", "deleted", started);
     }
 
     @Override
@@ -223,31 +320,13 @@ public class GroupServiceImpl implements GroupService {
 
         log.info("checking for expired groups");
 
-        List<ChatGroup> expiredGroups = chatGroupRepository.findAll().stream()
-                .filter(ChatGroup::isExpired)
-                .toList();
-
-        for (ChatGroup group : expiredGroups) {
-            log.info("Deleting expired groups: {}", group.getGroupName());
-            deleteGroup(group.getGroupName());
-        }
+        // set-based chunked deletes of groups, members and messages
+        expiredGroupCleanupJob.cleanUp();
     }
 
-    @Override
-    public void updateExpiryTimes() {
-        chatGroupRepository.findAll().forEach(group -> {
-            if (!group.isExpired()) {
-
-                int currentMins = Integer.parseInt(group.getExpiresIn());
-
-                if (currentMins > 0) {
-                    group.setExpiresIn(String.valueOf(currentMins - 1));
-                    chatGroupRepository.save(group);
-                } else {
-                    deleteGroup(group.getGroupName());
-                }
-            }
-        });
+    // Postgres keeps microseconds, so the scheduled instant must match the one read back from chat_group
+    private static Instant expiresIn(long minutes) {
+        return Instant.now().plus(Duration.ofMinutes(minutes)).truncatedTo(ChronoUnit.MICROS);
     }
 
 }
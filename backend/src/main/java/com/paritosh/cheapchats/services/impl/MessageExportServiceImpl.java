@@ -0,0 +1,146 @@
+package com.paritosh.cheapchats.services.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.paritosh.cheapchats.services.MessageExportService;
+import com.paritosh.cheapchats.services.MessagePersistenceService;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Streams a group's history from a forward-only cursor: Postgres only uses a cursor inside a transaction,
+// and then hands over fetch-size rows at a time, so memory stays flat whatever the size of the group.
+// Each export holds a pooled connection while it runs, so they are capped in number and in duration;
+// a client that stops reading fails the socket write and the transaction is rolled back.
+// The transaction is read-only, so with a read replica configured the cursor runs there.
+@Service
+@Slf4j
+public class MessageExportServiceImpl implements MessageExportService {
+
+    // in (group_name, timestamp, id) index order, no sort
+    private static final String EXPORT_SQL = "SELECT id, sender, content, timestamp, type FROM chat_message "
+            + "WHERE group_name = ? ORDER BY timestamp, id";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessagePersistenceService messagePersistenceService;
+    private final Semaphore permits;
+    private final long maxDurationNanos;
+
+    public MessageExportServiceImpl(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            MessagePersistenceService messagePersistenceService,
+            @Value("${cheapchats.messages.export.fetch-size:500}") int fetchSize,
+            @Value("${cheapchats.messages.export.max-concurrent:4}") int maxConcurrent,
+            @Value("${cheapchats.messages.export.max-duration-ms:300000}") long maxDurationMs
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(Math.max(1, fetchSize));
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxDurationMs)));
+        this.messagePersistenceService = messagePersistenceService;
+        this.permits = new Semaphore(Math.max(1, maxConcurrent));
+        this.maxDurationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, maxDurationMs));
+    }
+
+    @Override
+    public StreamingResponseBody export(String groupName, Format format, boolean gzip) {
+
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+
+        AtomicBoolean held = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (held.compareAndSet(true, false)) {
+                permits.release();
+            }
+        };
+        releaseOnCompletion(release);
+
+        return out -> {
+            try {
+                // messages still queued for the batched insert belong in the transcript
+                messagePersistenceService.flush();
+                long rows = stream(groupName, format, gzip, out);
+                log.info("EXPORT: {} messages of group {} as {}{}", rows, groupName, format, gzip ? " (gzip)" : "");
+            } catch (UncheckedIOException e) {
+                log.info("EXPORT of group {} aborted by the client: {}", groupName, e.getCause().getMessage());
+            } catch (QueryTimeoutException e) {
+                log.warn("EXPORT cut short: {}", e.getMessage());
+            } finally {
+                release.run();
+            }
+        };
+    }
+
+    // The body only runs once the async dispatch gets to it; a client gone before then, or an async timeout or
+    // error, ends the request without it, so the permit also goes back when the async request completes
+    private static void releaseOnCompletion(Runnable release) {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            WebAsyncUtils.getAsyncManager(attributes.getRequest()).registerCallableInterceptor(
+                    MessageExportServiceImpl.class.getName(), new CallableProcessingInterceptor() {
+                        @Override
+                        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                            release.run();
+                        }
+                    });
+        }
+    }
+
+    private long stream(String groupName, Format format, boolean gzip, OutputStream response) throws IOException {
+
+        OutputStream out = gzip ? new GZIPOutputStream(response, BUFFER_SIZE) : new BufferedOutputStream(response, BUFFER_SIZE);
+        TranscriptWriter writer = TranscriptWriter.of(format, out);
+        long deadline = System.nanoTime() + maxDurationNanos;
+        long[] rows = { 0 };
+
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(EXPORT_SQL, rs -> {
+            if (System.nanoTime() - deadline > 0) {
+                throw new QueryTimeoutException("Export of group " + groupName + " ran past its time limit after " + rows[0] + " messages");
+            }
+            try {
+                writer.write(rs.getLong("id"), rs.getString("sender"), rs.getString("content"),
+                        rs.getObject("timestamp", LocalDateTime.class), rs.getString("type"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        }, groupName));
+
+        writer.finish();
+        if (out instanceof GZIPOutputStream gzipOut) {
+            gzipOut.finish();
+        }
+        out.flush();
+        return rows[0];
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.paritosh.cheapchats.services.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import com.paritosh.cheapchats.cache.RecentMessageCache;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.MessageCursor;
+import com.paritosh.cheapchats.dto.MessagePage;
+import com.paritosh.cheapchats.repositories.ChatMessageRepository;
+import com.paritosh.cheapchats.repositories.ChatMessageView;
+import com.paritosh.cheapchats.services.MessageHistoryService;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class MessageHistoryServiceImpl implements MessageHistoryService {
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Value("${cheapchats.messages.history.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${cheapchats.messages.history.max-limit:200}")
+    private int maxLimit;
+
+    @Override
+    public MessagePage getMessages(String groupName, String before, Integer limit) {
+
+        int pageSize = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+        MessageCursor cursor = before == null || before.isBlank() ? null : MessageCursor.decode(before);
+
+        // serve from the recent-messages buffer when the whole window is in memory
+        List<ChatMessageDto> cached = recentMessageCache.find(groupName, cursor, pageSize);
+        if (cached != null) {
+            return toPage(cached, pageSize);
+        }
+
+        // fetch one extra row to know whether an older page exists
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<ChatMessageView> rows;
+
+        if (cursor == null) {
+            long mark = recentMessageCache.mark(groupName);
+            rows = chatMessageRepository.findLatest(groupName, fetchLimit);
+            List<ChatMessageDto> newestFirst = toDtos(rows);
+
+            // warm the buffer so the next page open for this group stays in memory
+            recentMessageCache.seed(groupName, mark, newestFirst, rows.size() <= pageSize);
+            return toPage(newestFirst, pageSize);
+        }
+
+        rows = chatMessageRepository.findBefore(groupName, cursor.timestamp(), cursor.id(), fetchLimit);
+        return toPage(toDtos(rows), pageSize);
+    }
+
+    // newestFirst holds up to pageSize + 1 messages, pages are returned oldest first
+    private MessagePage toPage(List<ChatMessageDto> newestFirst, int pageSize) {
+
+        boolean hasMore = newestFirst.size() > pageSize;
+        int count = Math.min(newestFirst.size(), pageSize);
+
+        List<ChatMessageDto> messages = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            messages.add(newestFirst.get(i));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            ChatMessageDto oldest = newestFirst.get(count - 1);
+            nextCursor = new MessageCursor(LocalDateTime.parse(oldest.getTimestamp()), oldest.getId()).encode();
+        }
+
+        log.debug("History page: {} messages, hasMore={}", count, hasMore);
+
+        return new MessagePage(messages, nextCursor);
+    }
+
+    private static List<ChatMessageDto> toDtos(List<ChatMessageView> rows) {
+        List<ChatMessageDto> dtos = new ArrayList<>(rows.size());
+        for (ChatMessageView view : rows) {
+            ChatMessageDto dto = new ChatMessageDto();
+            dto.setId(view.getId());
+            dto.setSender(view.getSender());
+            dto.setContent(view.getContent());
+            dto.setTimestamp(view.getTimestamp().toString());
+            dto.setType(view.getType());
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+}
@@ -0,0 +1,311 @@
+package com.paritosh.cheapchats.services.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.paritosh.cheapchats.models.ChatMessage;
+import com.paritosh.cheapchats.services.MessagePersistenceService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Write-behind message store: ids come from a pooled sequence block up front so messages can be
+// broadcast immediately, then a single flusher thread writes them to Postgres as JDBC batches.
+// Messages are already broadcast, so a batch the database can't take (failover, restart) is kept and retried
+// with a capped back-off; meanwhile the queue fills up and senders block on it. Only rejected rows are dropped.
+@Service
+@Slf4j
+public class MessagePersistenceServiceImpl implements MessagePersistenceService {
+
+    // ON CONFLICT keeps retries of a batch that already committed idempotent
+    private static final String INSERT_SQL = "INSERT INTO chat_message (id, group_name, sender, content, timestamp, type) "
+            + "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String NEXT_ID_SQL = "SELECT nextval('chat_message_seq')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long enqueueTimeoutMillis;
+    private final int maxWriteAttempts;
+    private final long maxBackOffMillis;
+
+    private final BlockingQueue<ChatMessage> queue;
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+
+    // held while draining and writing, so a flush() caller sees everything queued before it
+    private final ReentrantLock flushLock = new ReentrantLock(true);
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    // current block of ids handed out by the sequence, guarded by this
+    private long nextId;
+    private long idBlockEnd;
+
+    public MessagePersistenceServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            @Value("${cheapchats.messages.batch-size:200}") int batchSize,
+            @Value("${cheapchats.messages.linger-ms:25}") long lingerMillis,
+            @Value("${cheapchats.messages.queue-capacity:10000}") int queueCapacity,
+            @Value("${cheapchats.messages.enqueue-timeout-ms:50}") long enqueueTimeoutMillis,
+            @Value("${cheapchats.messages.max-write-attempts:3}") int maxWriteAttempts,
+            @Value("${cheapchats.messages.max-retry-backoff-ms:5000}") long maxBackOffMillis
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, lingerMillis));
+        this.enqueueTimeoutMillis = Math.max(0, enqueueTimeoutMillis);
+        this.maxWriteAttempts = Math.max(1, maxWriteAttempts);
+        this.maxBackOffMillis = Math.max(1, maxBackOffMillis);
+        this.queue = new ArrayBlockingQueue<>(Math.max(this.batchSize, queueCapacity));
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "chat-message-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Message writer started: batchSize={}, lingerMs={}, capacity={}",
+                batchSize, TimeUnit.NANOSECONDS.toMillis(lingerNanos), queue.remainingCapacity());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.NANOSECONDS.toMillis(lingerNanos) * 4 + 5_000);
+
+        // write whatever is left so no message is lost on shutdown
+        flush();
+        log.info("Message writer stopped, pending messages: {}", pendingIds.size());
+    }
+
+    @Override
+    public ChatMessage persist(ChatMessage message) {
+
+        message.setId(allocateId());
+        pendingIds.add(message.getId());
+
+        // no flusher left to hand the message to
+        if (!running) {
+            writeNow(message);
+            return message;
+        }
+
+        boolean queued;
+        try {
+            queued = queue.offer(message, enqueueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+
+        // queue is full: the caller pays for a batch itself instead of dropping the message
+        if (!queued) {
+            log.warn("Message queue full, writing on caller thread: {}", message.getId());
+            writeNow(message);
+        } else if (!running) {
+            // stop() flipped the flag after the check above, its final flush may already be done
+            flush();
+        }
+
+        return message;
+    }
+
+    @Override
+    public void flushIfPending(Long messageId) {
+        if (messageId != null && pendingIds.contains(messageId)) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<ChatMessage> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeNow(ChatMessage message) {
+        flushLock.lock();
+        try {
+            List<ChatMessage> batch = new ArrayList<>(batchSize);
+            batch.add(message);
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            flushLock.lock();
+            try {
+                ChatMessage first = queue.poll(lingerNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // linger until the batch is full or the window closes
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    ChatMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                log.error("Message flusher failed: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+                flushLock.unlock();
+            }
+        }
+    }
+
+    private void write(List<ChatMessage> batch) {
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), this::bind);
+                log.debug("Flushed {} messages", batch.size());
+                break;
+            } catch (DataIntegrityViolationException e) {
+                // a bad row fails its whole batch every time, retrying the batch would not help
+                log.warn("Message batch write failed, writing its {} messages one by one: {}", batch.size(), e.getMessage());
+                writeEach(batch);
+                break;
+            } catch (DataAccessException e) {
+                if (!retry(attempt, e)) {
+                    log.error("Dropping {} messages on shutdown, ids: {}", batch.size(),
+                            batch.stream().map(ChatMessage::getId).toList(), e);
+                    break;
+                }
+            }
+        }
+
+        batch.forEach(message -> pendingIds.remove(message.getId()));
+    }
+
+    // Row by row after a rejected batch, so only rows the database rejects are lost; a row that fails for any
+    // other reason is retried like a batch
+    private void writeEach(List<ChatMessage> batch) {
+
+        List<Long> dropped = new ArrayList<>();
+
+        for (ChatMessage message : batch) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, message));
+                    break;
+                } catch (DataIntegrityViolationException e) {
+                    log.error("Dropping message {} of group {}, rejected by the database: {}",
+                            message.getId(), message.getGroupName(), e.getMessage());
+                    dropped.add(message.getId());
+                    break;
+                } catch (DataAccessException e) {
+                    if (!retry(attempt, e)) {
+                        log.error("Dropping message {} of group {} on shutdown", message.getId(), message.getGroupName(), e);
+                        dropped.add(message.getId());
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (!dropped.isEmpty()) {
+            log.error("Dropped {} messages, ids: {}", dropped.size(), dropped);
+        }
+    }
+
+    // Waits before the next attempt; false once the writer is stopping and has used up its attempts, so
+    // shutdown is not held up by a database that is gone
+    private boolean retry(int attempt, DataAccessException e) {
+
+        boolean stopping = !running || Thread.currentThread().isInterrupted();
+        if (stopping && attempt >= maxWriteAttempts) {
+            return false;
+        }
+
+        long delay = backOffMillis(attempt);
+        log.warn("Message write failed (attempt {}), retrying in {} ms: {}", attempt, delay, e.getMessage());
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    // 100ms, doubling up to the cap
+    long backOffMillis(int attempt) {
+        return Math.min(maxBackOffMillis, 100L << Math.min(attempt - 1, 20));
+    }
+
+    private void bind(PreparedStatement ps, ChatMessage message) throws SQLException {
+        ps.setLong(1, message.getId());
+        ps.setString(2, message.getGroupName());
+        ps.setString(3, message.getSender());
+        ps.setString(4, message.getContent());
+        ps.setTimestamp(5, Timestamp.valueOf(message.getTimestamp()));
+        ps.setString(6, message.getType());
+    }
+
+    private synchronized long allocateId() {
+
+        // one sequence round trip per block, ids are handed out as [value, value + size)
+        if (nextId >= idBlockEnd) {
+            Long blockStart = jdbcTemplate.queryForObject(NEXT_ID_SQL, Long.class);
+            nextId = blockStart;
+            idBlockEnd = blockStart + ChatMessage.ID_ALLOCATION_SIZE;
+        }
+
+        return nextId++;
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.paritosh.cheapchats.services.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.MessageSearchPage;
+import com.paritosh.cheapchats.services.MessageSearchService;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Server-side search over the content_tsv column (MessageSearchMigration, db/message-search.sql), served by its GIN index together with the
+// (group_name, timestamp, id) index. Only the newest max-candidates matches of a group are ranked, so a
+// query matching most of a large group costs a bounded sort instead of ranking its whole history.
+// Messages still queued by the write-behind writer become searchable once they are flushed (and, with a read
+// replica configured, once the replica has caught up: searches run read-only).
+@Service
+@Slf4j
+public class MessageSearchServiceImpl implements MessageSearchService {
+
+    // text search configuration of the generated column, the query has to use the same one
+    private static final String SEARCH_SQL = "SELECT id, sender, content, timestamp, type FROM ("
+            + "SELECT id, sender, content, timestamp, type, content_tsv FROM chat_message "
+            + "WHERE group_name = :groupName AND type = 'CHAT' "
+            + "AND content_tsv @@ websearch_to_tsquery('simple', :query) "
+            + "ORDER BY timestamp DESC, id DESC LIMIT :candidates) m "
+            + "ORDER BY ts_rank_cd(content_tsv, websearch_to_tsquery('simple', :query)) DESC, timestamp DESC, id DESC "
+            + "LIMIT :limit OFFSET :offset";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${cheapchats.messages.search.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${cheapchats.messages.search.max-limit:100}")
+    private int maxLimit;
+
+    @Value("${cheapchats.messages.search.max-candidates:1000}")
+    private int maxCandidates;
+
+    @Value("${cheapchats.messages.search.max-query-length:200}")
+    private int maxQueryLength;
+
+    @Override
+    @Transactional(readOnly = true)
+    public MessageSearchPage search(String groupName, String query, Integer page, Integer size) {
+
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+        if (query.length() > maxQueryLength) {
+            throw new IllegalArgumentException("Search query is longer than " + maxQueryLength + " characters");
+        }
+
+        int pageSize = size == null ? defaultLimit : Math.max(1, Math.min(size, maxLimit));
+        int pageNumber = page == null ? 0 : Math.max(0, page);
+        long offset = (long) pageNumber * pageSize;
+        if (offset >= maxCandidates) {
+            return new MessageSearchPage(List.of(), null);
+        }
+
+        // fetch one extra row to know whether another page exists
+        List<ChatMessageDto> hits = jdbcTemplate.query(SEARCH_SQL, Map.of(
+                "groupName", groupName,
+                "query", query.strip(),
+                "candidates", maxCandidates,
+                "limit", pageSize + 1,
+                "offset", offset), MessageSearchServiceImpl::toDto);
+
+        boolean hasMore = hits.size() > pageSize;
+        log.debug("Search in {}: {} hits on page {}, hasMore={}", groupName, Math.min(hits.size(), pageSize), pageNumber, hasMore);
+
+        return new MessageSearchPage(hasMore ? hits.subList(0, pageSize) : hits, hasMore ? pageNumber + 1 : null);
+    }
+
+    private static ChatMessageDto toDto(ResultSet rs, int rowNum) throws SQLException {
+        ChatMessageDto dto = new ChatMessageDto();
+        dto.setId(rs.getLong("id"));
+        dto.setSender(rs.getString("sender"));
+        dto.setContent(rs.getString("content"));
+        dto.setTimestamp(rs.getObject("timestamp", LocalDateTime.class).toString());
+        dto.setType(rs.getString("type"));
+        return dto;
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.paritosh.cheapchats.services.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.paritosh.cheapchats.services.MessageExportService.Format;
+
+// Writes transcript rows straight to the output, one at a time, holding nothing but the encoder's buffer.
+// Fields and their names are those of ChatMessageDto.
+abstract class TranscriptWriter {
+
+    private static final JsonFactory JSON = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    static TranscriptWriter of(Format format, OutputStream out) throws IOException {
+        return format == Format.CSV ? new Csv(out) : new Ndjson(out);
+    }
+
+    abstract void write(long id, String sender, String content, LocalDateTime timestamp, String type) throws IOException;
+
+    // flushes what is buffered, the output stream itself is left open
+    abstract void finish() throws IOException;
+
+    // one JSON object per line
+    private static final class Ndjson extends TranscriptWriter {
+
+        private final JsonGenerator generator;
+        private boolean empty = true;
+
+        Ndjson(OutputStream out) throws IOException {
+            generator = JSON.createGenerator(out);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        void write(long id, String sender, String content, LocalDateTime timestamp, String type) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", id);
+            generator.writeStringField("sender", sender);
+            generator.writeStringField("content", content);
+            generator.writeStringField("timestamp", timestamp == null ? null : timestamp.toString());
+            generator.writeStringField("type", type);
+            generator.writeEndObject();
+            empty = false;
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (!empty) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+
+    // RFC 4180 with a header row
+    private static final class Csv extends TranscriptWriter {
+
+        private final Writer writer;
+
+        Csv(OutputStream out) throws IOException {
+            writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write("id,timestamp,sender,type,content\r\n");
+        }
+
+        @Override
+        void write(long id, String sender, String content, LocalDateTime timestamp, String type) throws IOException {
+            writer.write(Long.toString(id));
+            writer.write(',');
+            writer.write(timestamp == null ? "" : timestamp.toString());
+            writer.write(',');
+            field(sender);
+            writer.write(',');
+            field(type);
+            writer.write(',');
+            field(content);
+            writer.write("\r\n");
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+        private void field(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+
+            // a leading = + - @ makes spreadsheets evaluate the cell as a formula
+            char first = value.charAt(0);
+            boolean formula = first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+            boolean quote = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+
+            writer.write('"');
+            if (formula) {
+                writer.write('\'');
+            }
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+}
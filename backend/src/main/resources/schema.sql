@@ -0,0 +1,14 @@
+-- Runs after Hibernate's ddl-auto (spring.jpa.defer-datasource-initialization), statements must be idempotent
+
+-- Move the message id sequence past rows inserted before ids were allocated from it
+SELECT setval('chat_message_seq', (SELECT MAX(id) + 1 FROM chat_message), false)
+WHERE (SELECT MAX(id) FROM chat_message) >= (SELECT last_value FROM chat_message_seq) + 50;
+
+-- Broadcasts too large for a NOTIFY payload, read by the other nodes and purged after a few minutes
+CREATE TABLE IF NOT EXISTS fanout_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- content_tsv for message search is added by MessageSearchMigration on a new database, db/message-search.sql otherwise
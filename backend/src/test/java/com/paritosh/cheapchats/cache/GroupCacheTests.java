@@ -0,0 +1,95 @@
+package com.paritosh.cheapchats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.paritosh.cheapchats.models.ChatGroup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GroupCacheTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final GroupCache cache = new GroupCache(registry, 100, 60, true);
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void loadsOnceUntilInvalidated() {
+		assertTrue(cache.group("devs", this::load).isPresent());
+		assertTrue(cache.group("devs", this::load).isPresent());
+		assertEquals(1, loads.get());
+
+		cache.invalidate("devs");
+		cache.group("devs", this::load);
+		assertEquals(2, loads.get());
+
+		assertEquals(2, registry.get("cache.gets").tag("cache", "group.metadata").tag("result", "miss")
+				.functionCounter().count());
+	}
+
+	@Test
+	void cachesMissingGroups() {
+		assertFalse(cache.group("nope", name -> load(null)).isPresent());
+		assertFalse(cache.group("nope", name -> load(null)).isPresent());
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void disabledCacheReadsThrough() {
+		GroupCache disabled = new GroupCache(new SimpleMeterRegistry(), 100, 60, false);
+
+		disabled.group("devs", this::load);
+		disabled.group("devs", this::load);
+		assertEquals(2, loads.get());
+		assertEquals(List.of("carol"), List.copyOf(disabled.members("devs", name -> List.of("carol"))));
+		assertEquals(List.of("bob"), List.copyOf(disabled.members("devs", name -> List.of("bob"))));
+	}
+
+	@Test
+	void membersKeepJoinOrderAndCallersGetFreshCopies() {
+		List<String> members = List.of("carol", "alice", "bob");
+
+		assertEquals(members, List.copyOf(cache.members("devs", name -> members)));
+
+		cache.invalidateMembers("devs");
+		assertEquals(List.of("carol"), List.copyOf(cache.members("devs", name -> List.of("carol"))));
+
+		GroupCache.GroupSnapshot snapshot = cache.group("devs", this::load).orElseThrow();
+		assertNotSame(snapshot.toChatGroup(cache.members("devs", name -> members)),
+				snapshot.toChatGroup(cache.members("devs", name -> members)));
+	}
+
+	@Test
+	void invalidateAllReloadsEveryGroup() {
+		cache.group("devs", this::load);
+		cache.group("ops", this::load);
+
+		cache.invalidateAll();
+		cache.group("devs", this::load);
+		cache.group("ops", this::load);
+
+		assertEquals(4, loads.get());
+	}
+
+	private Optional<ChatGroup> load(String groupName) {
+		loads.incrementAndGet();
+		if (groupName == null) {
+			return Optional.empty();
+		}
+		ChatGroup group = new ChatGroup();
+		group.setGroupName(groupName);
+		group.setCreatedBy("alice");
+		group.setExpiresAt(Instant.now().plusSeconds(600));
+		return Optional.of(group);
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.paritosh.cheapchats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.MessageCursor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RecentMessageCacheTests {
+
+	private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+	private final RecentMessageCache cache = new RecentMessageCache(new SimpleMeterRegistry(), 8, 10, 1_000_000, 30, true);
+
+	@Test
+	void servesLatestWindowOfNewGroup() {
+		cache.startGroup("devs");
+		for (long id = 1; id <= 3; id++) {
+			cache.add("devs", message(id));
+		}
+
+		List<ChatMessageDto> window = cache.find("devs", null, 5);
+
+		assertNotNull(window);
+		assertEquals(List.of(3L, 2L, 1L), window.stream().map(ChatMessageDto::getId).toList());
+	}
+
+	@Test
+	void missesWhenWindowReachesPastWrappedBuffer() {
+		for (long id = 1; id <= 20; id++) {
+			cache.add("devs", message(id));
+		}
+
+		assertNotNull(cache.find("devs", null, 5));
+		assertNull(cache.find("devs", null, 8));
+	}
+
+	@Test
+	void pagesBeforeCursorAndSkipsDeletedMessages() {
+		cache.startGroup("devs");
+		for (long id = 1; id <= 6; id++) {
+			cache.add("devs", message(id));
+		}
+		cache.remove("devs", 4L);
+
+		List<ChatMessageDto> window = cache.find("devs", new MessageCursor(START.plusSeconds(5), 5L), 2);
+
+		assertEquals(List.of(3L, 2L, 1L), window.stream().map(ChatMessageDto::getId).toList());
+	}
+
+	@Test
+	void evictAllForgetsCompleteBuffers() {
+		cache.startGroup("devs");
+		cache.add("devs", message(1));
+		assertNotNull(cache.find("devs", null, 5));
+
+		cache.evictAll();
+
+		assertNull(cache.find("devs", null, 5));
+	}
+
+	@Test
+	void disabledCacheNeverAnswers() {
+		RecentMessageCache disabled = new RecentMessageCache(new SimpleMeterRegistry(), 8, 10, 1_000_000, 30, false);
+
+		// relay mode: other nodes' messages would never reach this buffer
+		disabled.startGroup("devs");
+		disabled.add("devs", message(1));
+		disabled.seed("devs", 0, List.of(message(1)), true);
+
+		assertNull(disabled.find("devs", null, 5));
+	}
+
+	private static ChatMessageDto message(long id) {
+		ChatMessageDto dto = new ChatMessageDto();
+		dto.setId(id);
+		dto.setSender("raj");
+		dto.setContent("message " + id);
+		dto.setTimestamp(START.plusSeconds(id).toString());
+		dto.setType("CHAT");
+		return dto;
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.paritosh.cheapchats.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
+import com.paritosh.cheapchats.messaging.GroupBroadcaster;
+import com.paritosh.cheapchats.ratelimit.RateLimitInterceptor;
+
+// Relay mode end to end: the WebSocket config in relay mode against an in-memory Artemis broker with a STOMP
+// acceptor, clients connecting over /ws like the frontend does. Only the messaging beans, no database.
+@SpringBootTest(classes = BrokerRelayTests.RelayApp.class, webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"cheapchats.broker.mode=relay",
+		"cheapchats.broker.relay.max-sessions=1",
+		"cheapchats.broker.relay.pending-acquire-timeout-ms=500",
+		"spring.security.user.name=admin",
+		"spring.security.user.password=admin" })
+class BrokerRelayTests {
+
+	private static final EmbeddedActiveMQ BROKER = new EmbeddedActiveMQ();
+	private static int brokerPort;
+
+	@LocalServerPort
+	private int port;
+
+	private WebSocketStompClient stompClient;
+
+	@BeforeAll
+	static void startBroker() throws Exception {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			brokerPort = socket.getLocalPort();
+		}
+		BROKER.setConfiguration(new ConfigurationImpl()
+				.setPersistenceEnabled(false)
+				.setSecurityEnabled(false)
+				.addAcceptorConfiguration("stomp", "tcp://localhost:" + brokerPort + "?protocols=STOMP"));
+		BROKER.start();
+	}
+
+	@AfterAll
+	static void stopBroker() throws Exception {
+		BROKER.stop();
+	}
+
+	@DynamicPropertySource
+	static void relayPort(DynamicPropertyRegistry registry) {
+		registry.add("cheapchats.broker.relay.port", () -> brokerPort);
+	}
+
+	@BeforeEach
+	void setUp() {
+		stompClient = new WebSocketStompClient(new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+		stompClient.setMessageConverter(new StringMessageConverter());
+	}
+
+	@AfterEach
+	void tearDown() {
+		stompClient.stop();
+	}
+
+	@Test
+	void sendToAGroupTopicComesBackThroughTheBroker() throws Exception {
+		StompSession session = connect().get(5, TimeUnit.SECONDS);
+		try {
+			BlockingQueue<String> received = new LinkedBlockingQueue<>();
+			String topic = GroupBroadcaster.GROUP_TOPIC_PREFIX + "devs";
+			session.subscribe(topic, new StompFrameHandler() {
+				@Override
+				public Type getPayloadType(StompHeaders headers) {
+					return String.class;
+				}
+
+				@Override
+				public void handleFrame(StompHeaders headers, Object payload) {
+					received.add((String) payload);
+				}
+			});
+
+			// the SUBSCRIBE has no receipt, resend until the broker has it
+			String payload = null;
+			for (int i = 0; i < 50 && payload == null; i++) {
+				session.send(topic, "hello");
+				payload = received.poll(100, TimeUnit.MILLISECONDS);
+			}
+			assertEquals("hello", payload);
+		} finally {
+			session.disconnect();
+		}
+	}
+
+	@Test
+	void sessionsPastTheCapAreRefused() throws Exception {
+		StompSession first = connect().get(5, TimeUnit.SECONDS);
+		try {
+			// max-sessions=1: the only client connection is taken, the next session gets an ERROR once the acquire times out
+			assertThrows(ExecutionException.class, () -> connect().get(5, TimeUnit.SECONDS));
+		} finally {
+			first.disconnect();
+		}
+	}
+
+	@Test
+	void poolHoldsOneConnectionPerSessionPlusTheSystemConnection() {
+		BrokerProperties.Relay relay = new BrokerProperties.Relay();
+		relay.setMaxSessions(2000);
+		assertEquals(2001, WebSocketConfig.relayConnectionLimit(relay));
+
+		relay.setMaxSessions(0);
+		assertEquals(2, WebSocketConfig.relayConnectionLimit(relay));
+	}
+
+	private CompletableFuture<StompSession> connect() {
+		return stompClient.connectAsync("ws://localhost:" + port + "/ws", new StompSessionHandlerAdapter() {
+		});
+	}
+
+	@SpringBootConfiguration
+	@EnableAutoConfiguration(exclude = { DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class })
+	@Import({ WebSocketConfig.class, SecurityConfig.class, RateLimitInterceptor.class, GroupAliasRegistry.class })
+	static class RelayApp {
+	}
+
+}
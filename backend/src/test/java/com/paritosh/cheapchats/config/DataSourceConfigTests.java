@@ -0,0 +1,82 @@
+package com.paritosh.cheapchats.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+// One Postgres stands in for both primary and replica, the pools tell which one served a transaction.
+// Skipped when Docker is unavailable.
+@Testcontainers(disabledWithoutDocker = true)
+class DataSourceConfigTests {
+
+	@Container
+	static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	private HikariDataSource primary;
+	private HikariDataSource replica;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	void setUp() {
+		primary = pool("primary");
+		replica = pool("replica");
+		replica.setReadOnly(true);
+
+		DataSource dataSource = new DataSourceConfig().dataSource(primary, replica);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS note (id INT PRIMARY KEY)");
+	}
+
+	@AfterEach
+	void tearDown() {
+		primary.close();
+		replica.close();
+	}
+
+	@Test
+	void readOnlyTransactionsRunOnTheReplica() {
+		transactionTemplate.setReadOnly(true);
+		transactionTemplate.executeWithoutResult(status -> {
+			assertEquals("on", jdbcTemplate.queryForObject("SHOW transaction_read_only", String.class));
+			assertEquals(1, replica.getHikariPoolMXBean().getActiveConnections());
+			assertEquals(0, primary.getHikariPoolMXBean().getActiveConnections());
+		});
+	}
+
+	@Test
+	void writesAndNonTransactionalWorkRunOnThePrimary() {
+		transactionTemplate.executeWithoutResult(status -> {
+			jdbcTemplate.update("INSERT INTO note (id) VALUES (1) ON CONFLICT DO NOTHING");
+			assertEquals(1, primary.getHikariPoolMXBean().getActiveConnections());
+			assertEquals(0, replica.getHikariPoolMXBean().getActiveConnections());
+		});
+
+		assertEquals("off", jdbcTemplate.queryForObject("SHOW transaction_read_only", String.class));
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM note", Integer.class));
+	}
+
+	private static HikariDataSource pool(String name) {
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl(POSTGRES.getJdbcUrl());
+		dataSource.setUsername(POSTGRES.getUsername());
+		dataSource.setPassword(POSTGRES.getPassword());
+		dataSource.setPoolName(name);
+		dataSource.setMaximumPoolSize(2);
+		return dataSource;
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.paritosh.cheapchats.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class MessageLogTests {
+
+	@Test
+	void logsFirstMessagesOfEachGroupAndCountsTheRest() {
+		MessageLog messageLog = new MessageLog(2, 100);
+
+		assertEquals(0, messageLog.sample("devs"));
+		assertEquals(0, messageLog.sample("devs"));
+		assertEquals(-1, messageLog.sample("devs"));
+		assertEquals(-1, messageLog.sample("devs"));
+
+		// other groups have their own budget
+		assertEquals(0, messageLog.sample("ops"));
+	}
+
+	@Test
+	void reportsSkippedCountOnceTheWindowRollsOver() throws InterruptedException {
+		MessageLog messageLog = new MessageLog(1, 100);
+
+		assertEquals(0, messageLog.sample("devs"));
+		assertEquals(-1, messageLog.sample("devs"));
+		assertEquals(-1, messageLog.sample("devs"));
+
+		Thread.sleep(1100);
+		assertEquals(2, messageLog.sample("devs"));
+	}
+
+}
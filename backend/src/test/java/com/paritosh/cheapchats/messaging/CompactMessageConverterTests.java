@@ -0,0 +1,83 @@
+package com.paritosh.cheapchats.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+class CompactMessageConverterTests {
+
+	private final MappingJackson2MessageConverter json = new MappingJackson2MessageConverter();
+	private final CompositeMessageConverter converters = new CompositeMessageConverter(
+			List.of(new CompactMessageConverter(), json));
+
+	@Test
+	void roundTripsAtMillisecondPrecision() {
+		ChatMessageDto message = message("CHAT", "2025-01-01T12:00:00.123456");
+
+		ChatMessageDto decoded = CompactMessageCodec.decode(CompactMessageCodec.encode(message));
+
+		assertEquals(message.getId(), decoded.getId());
+		assertEquals(message.getSender(), decoded.getSender());
+		assertEquals(message.getContent(), decoded.getContent());
+		assertEquals("CHAT", decoded.getType());
+		assertEquals("2025-01-01T12:00:00.123", decoded.getTimestamp());
+	}
+
+	@Test
+	void keepsUnknownTypesAndAbsentFields() {
+		ChatMessageDto message = new ChatMessageDto();
+		message.setType("TYPING");
+
+		ChatMessageDto decoded = CompactMessageCodec.decode(CompactMessageCodec.encode(message));
+
+		assertEquals("TYPING", decoded.getType());
+		assertNull(decoded.getId());
+		assertNull(decoded.getTimestamp());
+		assertNull(decoded.getContent());
+	}
+
+	@Test
+	void usedOnlyWithTheCompactContentType() {
+		ChatMessageDto message = message("CHAT", LocalDateTime.of(2025, 1, 1, 12, 0).toString());
+
+		Message<?> compact = converters.toMessage(message, headers(true));
+		Message<?> plain = converters.toMessage(message, headers(false));
+
+		byte[] compactBytes = (byte[]) compact.getPayload();
+		byte[] jsonBytes = (byte[]) plain.getPayload();
+		assertEquals(CompactMessageCodec.VERSION, compactBytes[0]);
+		assertEquals('{', jsonBytes[0]);
+		assertTrue(compactBytes.length * 10 < jsonBytes.length * 6, compactBytes.length + " vs " + jsonBytes.length);
+		assertEquals(message.getContent(), ((ChatMessageDto) converters.fromMessage(compact, ChatMessageDto.class)).getContent());
+	}
+
+	private static MessageHeaders headers(boolean compact) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+		accessor.setContentType(compact ? CompactMessageConverter.COMPACT : MimeTypeUtils.APPLICATION_JSON);
+		return accessor.getMessageHeaders();
+	}
+
+	private static ChatMessageDto message(String type, String timestamp) {
+		ChatMessageDto message = new ChatMessageDto();
+		message.setId(123_456L);
+		message.setSender("alice");
+		message.setContent("Message number 42 in a fairly ordinary group chat");
+		message.setType(type);
+		message.setTimestamp(timestamp);
+		return message;
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.paritosh.cheapchats.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import com.paritosh.cheapchats.cache.GroupCache;
+import com.paritosh.cheapchats.models.ChatGroup;
+import com.paritosh.cheapchats.repositories.ChatGroupRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GroupExpiryNotifierTests {
+
+	private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+	private final ChatGroupRepository repository = mock(ChatGroupRepository.class);
+	private final GroupAliasRegistry aliases = new GroupAliasRegistry(15);
+	private final GroupExpiryNotifier notifier = new GroupExpiryNotifier(repository,
+			new GroupCache(new SimpleMeterRegistry(), 100, 30, true), aliases, (message, timeout) -> sent.add(message),
+			new MappingJackson2MessageConverter());
+
+	@Test
+	void sendsSnapshotToSubscribingSessionOnly() {
+		when(repository.findById("devs")).thenReturn(Optional.of(group("devs", Instant.now().plus(Duration.ofMinutes(10)))));
+		aliases.register("old-devs", "devs");
+
+		notifier.onSubscribe(subscribe("s1", "sub-0", "/topic/group/old-devs/expiry"));
+
+		assertEquals(1, sent.size());
+		SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(sent.get(0));
+		assertEquals("s1", headers.getSessionId());
+		assertEquals("sub-0", headers.getSubscriptionId());
+		assertEquals("/topic/group/old-devs/expiry", headers.getDestination());
+		String body = new String((byte[]) sent.get(0).getPayload(), StandardCharsets.UTF_8);
+		assertTrue(body.contains("\"groupName\":\"devs\""), body);
+		assertTrue(body.contains("\"minsLeft\":9"), body);
+		assertTrue(body.contains("\"isExpired\":false"), body);
+	}
+
+	@Test
+	void ignoresChatTopicsAndMissingGroups() {
+		when(repository.findById("ghost")).thenReturn(Optional.empty());
+
+		notifier.onSubscribe(subscribe("s1", "sub-0", "/topic/group/devs"));
+		notifier.onSubscribe(subscribe("s1", "sub-1", "/topic/group/ghost/expiry"));
+
+		assertTrue(sent.isEmpty());
+	}
+
+	private static ChatGroup group(String name, Instant expiresAt) {
+		ChatGroup group = new ChatGroup();
+		group.setGroupName(name);
+		group.setCreatedBy("alice");
+		group.setExpiresAt(expiresAt);
+		return group;
+	}
+
+	private SessionSubscribeEvent subscribe(String sessionId, String subscriptionId, String destination) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		accessor.setDestination(destination);
+		return new SessionSubscribeEvent(this, MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+	}
+
+}
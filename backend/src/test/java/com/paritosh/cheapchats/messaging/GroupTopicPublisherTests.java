@@ -0,0 +1,74 @@
+package com.paritosh.cheapchats.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.util.MimeTypeUtils;
+
+import com.paritosh.cheapchats.config.WebSocketProperties;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GroupTopicPublisherTests {
+
+	private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+
+	@Test
+	void encodesOnceForTheGroupAndItsAliases() {
+		publisher(false).publish("devs", List.of("old-devs", "older-devs"), message());
+
+		assertEquals(List.of("/topic/group/devs", "/topic/group/old-devs", "/topic/group/older-devs"),
+				sent.stream().map(GroupTopicPublisherTests::destination).toList());
+		for (Message<?> message : sent) {
+			assertSame(sent.get(0).getPayload(), message.getPayload());
+			assertEquals(MimeTypeUtils.APPLICATION_JSON, SimpMessageHeaderAccessor.wrap(message).getContentType());
+		}
+		String json = new String((byte[]) sent.get(0).getPayload(), StandardCharsets.UTF_8);
+		assertTrue(json.startsWith("{\"id\":7,\"sender\":\"alice\""), json);
+	}
+
+	@Test
+	void sharesCompactBytesAcrossTopics() {
+		publisher(true).publish("devs", List.of("old-devs"), message());
+
+		List<Message<?>> compact = sent.stream().filter(message -> destination(message).endsWith("/compact")).toList();
+		assertEquals(2, compact.size());
+		assertSame(compact.get(0).getPayload(), compact.get(1).getPayload());
+		assertEquals(CompactMessageConverter.COMPACT, SimpMessageHeaderAccessor.wrap(compact.get(0)).getContentType());
+		assertEquals("hello", CompactMessageCodec.decode((byte[]) compact.get(0).getPayload()).getContent());
+	}
+
+	private GroupTopicPublisher publisher(boolean compact) {
+		WebSocketProperties properties = new WebSocketProperties();
+		properties.getCompact().setEnabled(compact);
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+		return new GroupTopicPublisher(template, new MappingJackson2MessageConverter(),
+				new MessageBatcher(template, properties, new SimpleMeterRegistry()), properties);
+	}
+
+	private static String destination(Message<?> message) {
+		return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+	}
+
+	private static ChatMessageDto message() {
+		ChatMessageDto message = new ChatMessageDto();
+		message.setId(7L);
+		message.setSender("alice");
+		message.setContent("hello");
+		message.setType("CHAT");
+		message.setTimestamp("2025-01-01T12:00:00");
+		return message;
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.paritosh.cheapchats.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.paritosh.cheapchats.config.WebSocketProperties;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MessageBatcherTests {
+
+	private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+	private MessageBatcher batcher;
+
+	@AfterEach
+	void stop() throws InterruptedException {
+		batcher.stop();
+	}
+
+	@Test
+	void coalescesMessagesWithinTheWindow() throws InterruptedException {
+		batcher = batcher(true, 50, 100);
+
+		batcher.add("devs", message(1L));
+		batcher.add("devs", message(2L));
+		batcher.add("ops", message(3L));
+		assertTrue(sent.isEmpty());
+
+		awaitFrames(2);
+		assertEquals("/topic/group/devs/batch", destination(frameFor("devs")));
+		assertTrue(body(frameFor("devs")).matches("\\[\\{\"id\":1.*\\},\\{\"id\":2.*\\}\\]"), body(frameFor("devs")));
+		assertTrue(body(frameFor("ops")).startsWith("[{\"id\":3"), body(frameFor("ops")));
+	}
+
+	@Test
+	void sendsFullBatchWithoutWaiting() throws InterruptedException {
+		batcher = batcher(true, 60_000, 3);
+
+		for (long id = 1; id <= 3; id++) {
+			batcher.add("devs", message(id));
+		}
+
+		awaitFrames(1);
+		assertEquals(3, body(sent.get(0)).split("\"id\"").length - 1);
+	}
+
+	@Test
+	void doesNothingWhenDisabled() {
+		batcher = batcher(false, 1, 1);
+
+		batcher.add("devs", message(1L));
+		batcher.flush("devs");
+
+		assertTrue(sent.isEmpty());
+	}
+
+	private MessageBatcher batcher(boolean enabled, int windowMs, int maxMessages) {
+		WebSocketProperties properties = new WebSocketProperties();
+		properties.getBatch().setEnabled(enabled);
+		properties.getBatch().setWindowMs(windowMs);
+		properties.getBatch().setMaxMessages(maxMessages);
+
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+		template.setMessageConverter(new MappingJackson2MessageConverter());
+		return new MessageBatcher(template, properties, new SimpleMeterRegistry());
+	}
+
+	private void awaitFrames(int count) throws InterruptedException {
+		for (int i = 0; i < 100 && sent.size() < count; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(count, sent.size());
+	}
+
+	private Message<?> frameFor(String groupName) {
+		return sent.stream().filter(message -> destination(message).equals("/topic/group/" + groupName + "/batch"))
+				.findFirst().orElseThrow();
+	}
+
+	private static String destination(Message<?> message) {
+		return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+	}
+
+	private static String body(Message<?> message) {
+		return new String((byte[]) message.getPayload(), StandardCharsets.UTF_8);
+	}
+
+	private static ChatMessageDto message(Long id) {
+		ChatMessageDto message = new ChatMessageDto();
+		message.setId(id);
+		message.setSender("alice");
+		message.setContent("hi " + id);
+		message.setType("CHAT");
+		return message;
+	}
+
+}
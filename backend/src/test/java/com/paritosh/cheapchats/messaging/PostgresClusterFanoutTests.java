@@ -0,0 +1,199 @@
+package com.paritosh.cheapchats.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paritosh.cheapchats.cache.GroupCache;
+import com.paritosh.cheapchats.cache.RecentMessageCache;
+import com.paritosh.cheapchats.config.BrokerProperties;
+import com.paritosh.cheapchats.config.WebSocketProperties;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Two fan-out nodes against one throwaway Postgres, skipped when Docker is unavailable
+@Testcontainers(disabledWithoutDocker = true)
+class PostgresClusterFanoutTests {
+
+	@Container
+	static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	private Node first;
+	private Node second;
+
+	@BeforeEach
+	void startNodes() {
+		first = new Node();
+		second = new Node();
+		first.jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS fanout_outbox (id BIGSERIAL PRIMARY KEY, "
+				+ "payload TEXT NOT NULL, created_at TIMESTAMPTZ NOT NULL DEFAULT now())");
+		first.fanout.start();
+		second.fanout.start();
+	}
+
+	@AfterEach
+	void stopNodes() throws InterruptedException {
+		first.fanout.stop();
+		second.fanout.stop();
+	}
+
+	@Test
+	void deliversToOtherNodeOnly() throws InterruptedException {
+		awaitListening();
+
+		first.fanout.publish("devs", List.of(), message(1L, "CHAT", "hello"));
+
+		awaitDestinations(second, 1);
+		assertEquals(List.of("/topic/group/devs"), second.destinations);
+		assertTrue(first.destinations.isEmpty());
+		// recorded in the buffer, which only answers history once it is known to hold all of it
+		assertEquals(1, second.cache.mark("devs"));
+	}
+
+	@Test
+	void largePayloadGoesThroughOutbox() throws InterruptedException {
+		awaitListening();
+
+		first.fanout.publish("devs", List.of("old-devs"), message(2L, "CHAT", "x".repeat(20_000)));
+
+		awaitDestinations(second, 2);
+		assertEquals(List.of("/topic/group/devs", "/topic/group/old-devs"), second.destinations);
+	}
+
+	@Test
+	void sameMessageFromTwoNodesIsDeliveredOnce() throws InterruptedException {
+		Node third = new Node();
+		third.fanout.start();
+		try {
+			awaitListening();
+
+			first.fanout.publish("devs", List.of(), message(3L, "DELETE", "Message deleted"));
+			second.fanout.publish("devs", List.of(), message(3L, "DELETE", "Message deleted"));
+
+			awaitDestinations(third, 1);
+			Thread.sleep(500);
+			assertEquals(1, third.destinations.size());
+		} finally {
+			third.fanout.stop();
+		}
+	}
+
+	@Test
+	void relayModeKeepsNodeStateWithoutReEmitting() throws InterruptedException {
+		BrokerProperties relay = new BrokerProperties();
+		relay.setMode(BrokerProperties.Mode.RELAY);
+		Node third = new Node(relay);
+		third.fanout.start();
+		try {
+			awaitListening();
+
+			first.fanout.publish("devs", List.of(), message(1L, "CHAT", "hello"));
+			first.fanout.publish("devs", List.of("old-devs"), message(2L, "RENAME", "renamed"));
+			second.fanout.publish("devs", List.of(), message(3L, "CHAT", "again"));
+
+			awaitDestinations(second, 3);
+			Thread.sleep(500);
+
+			// the relay broker already delivered these to the node's subscribers
+			assertTrue(third.destinations.isEmpty());
+			assertEquals("devs", third.aliases.resolve("old-devs"));
+			// the rename dropped the buffer, only the message after it is recorded
+			assertEquals(1, third.cache.mark("devs"));
+		} finally {
+			third.fanout.stop();
+		}
+	}
+
+	@Test
+	void listeningDropsBuffersThatMayHaveMissedBroadcasts() throws InterruptedException {
+		Node third = new Node();
+		third.cache.startGroup("devs");
+		third.cache.add("devs", message(1L, "CHAT", "before"));
+		try {
+			third.fanout.start();
+			awaitListening();
+
+			assertNull(third.cache.find("devs", null, 10));
+		} finally {
+			third.fanout.stop();
+		}
+	}
+
+	// LISTEN is issued asynchronously by each node's listener thread
+	private static void awaitListening() throws InterruptedException {
+		Thread.sleep(1500);
+	}
+
+	private static void awaitDestinations(Node node, int count) throws InterruptedException {
+		for (int i = 0; i < 50 && node.destinations.size() < count; i++) {
+			Thread.sleep(100);
+		}
+	}
+
+	private static ChatMessageDto message(Long id, String type, String content) {
+		ChatMessageDto message = new ChatMessageDto();
+		message.setId(id);
+		message.setSender("alice");
+		message.setContent(content);
+		message.setType(type);
+		message.setTimestamp(LocalDateTime.now().toString());
+		return message;
+	}
+
+	private static final class Node {
+
+		private final List<String> destinations = new CopyOnWriteArrayList<>();
+		private final RecentMessageCache cache = new RecentMessageCache(new SimpleMeterRegistry(), 16, 10, 1_000_000, 30, true);
+		private final GroupCache groupCache = new GroupCache(new SimpleMeterRegistry(), 100, 30, true);
+		private final GroupAliasRegistry aliases = new GroupAliasRegistry(15);
+		private final JdbcTemplate jdbcTemplate;
+		private final PostgresClusterFanout fanout;
+
+		private Node() {
+			this(new BrokerProperties());
+		}
+
+		private Node(BrokerProperties brokerProperties) {
+			DataSourceProperties properties = new DataSourceProperties();
+			properties.setUrl(POSTGRES.getJdbcUrl());
+			properties.setUsername(POSTGRES.getUsername());
+			properties.setPassword(POSTGRES.getPassword());
+
+			jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(POSTGRES.getJdbcUrl(),
+					POSTGRES.getUsername(), POSTGRES.getPassword()));
+
+			SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((Message<?> message, long timeout) -> {
+				destinations.add(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+				return true;
+			});
+
+			fanout = new PostgresClusterFanout(jdbcTemplate, properties, new ObjectMapper(), messagingTemplate, cache,
+					aliases, groupCache,
+					new GroupTopicPublisher(messagingTemplate, new MappingJackson2MessageConverter(),
+							new MessageBatcher(messagingTemplate, new WebSocketProperties(), new SimpleMeterRegistry()),
+							new WebSocketProperties()),
+					brokerProperties, 100, 100, 5);
+		}
+	}
+
+}
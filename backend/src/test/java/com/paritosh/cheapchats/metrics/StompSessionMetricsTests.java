@@ -0,0 +1,83 @@
+package com.paritosh.cheapchats.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class StompSessionMetricsTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final StompSessionMetrics metrics = new StompSessionMetrics(registry);
+
+	@Test
+	void countsSubscriptionsPerGroupWithoutGroupTags() {
+		connect("s1");
+		connect("s2");
+		subscribe("s1", "sub-0", "/topic/group/devs");
+		subscribe("s2", "sub-0", "/topic/group/devs");
+		subscribe("s2", "sub-1", "/topic/group/ops");
+		subscribe("s2", "sub-2", "/user/queue/errors");
+		subscribe("s2", "sub-3", "/topic/group/devs/expiry");
+		subscribe("s2", "sub-4", "/topic/group/devs/presence");
+		subscribe("s1", "sub-1", "/topic/group/ops/batch");
+
+		assertEquals(2, metrics.subscribers("devs"));
+		assertEquals(2, metrics.subscribers("ops"));
+		assertEquals(4, gauge("chat.stomp.subscriptions"));
+		assertEquals(2, gauge("chat.stomp.groups.active"));
+		assertEquals(2, gauge("chat.stomp.group.subscribers.max"));
+		assertEquals(1, registry.find("chat.stomp.subscriptions").meters().size());
+	}
+
+	@Test
+	void releasesSubscriptionsOnUnsubscribeAndDisconnect() {
+		connect("s1");
+		subscribe("s1", "sub-0", "/topic/group/devs");
+		subscribe("s1", "sub-1", "/topic/group/ops");
+
+		unsubscribe("s1", "sub-0");
+		assertEquals(0, metrics.subscribers("devs"));
+
+		metrics.onDisconnect(new SessionDisconnectEvent(this, message(StompCommand.DISCONNECT, "s1", null, null), "s1",
+				CloseStatus.NORMAL));
+		assertEquals(0, metrics.subscribers("ops"));
+		assertEquals(0, gauge("chat.stomp.sessions"));
+		assertEquals(0, gauge("chat.stomp.subscriptions"));
+	}
+
+	private void connect(String sessionId) {
+		metrics.onConnected(new SessionConnectedEvent(this, message(StompCommand.CONNECTED, sessionId, null, null)));
+	}
+
+	private void subscribe(String sessionId, String subscriptionId, String destination) {
+		metrics.onSubscribe(new SessionSubscribeEvent(this, message(StompCommand.SUBSCRIBE, sessionId, subscriptionId, destination)));
+	}
+
+	private void unsubscribe(String sessionId, String subscriptionId) {
+		metrics.onUnsubscribe(new SessionUnsubscribeEvent(this, message(StompCommand.UNSUBSCRIBE, sessionId, subscriptionId, null)));
+	}
+
+	private double gauge(String name) {
+		return registry.get(name).gauge().value();
+	}
+
+	private static Message<byte[]> message(StompCommand command, String sessionId, String subscriptionId, String destination) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		accessor.setDestination(destination);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.paritosh.cheapchats.presence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.paritosh.cheapchats.dto.PresenceDto;
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PresenceRegistryTests {
+
+	private final AtomicLong now = new AtomicLong();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final PresenceRegistry registry = new PresenceRegistry(new GroupAliasRegistry(15), meterRegistry, 5000, now::get);
+
+	@Test
+	void countsUsersNotSessionsOrSubscriptions() {
+		registry.connect("s1", "raj");
+		registry.connect("s2", "raj");
+		registry.connect("s3", "sid");
+		registry.subscribe("s1", "sub-0", "devs");
+		registry.subscribe("s1", "sub-1", "devs");
+		registry.subscribe("s2", "sub-0", "devs");
+		registry.subscribe("s3", "sub-0", "devs");
+
+		assertEquals(2, registry.onlineCount("devs"));
+		assertEquals(2, meterRegistry.get("chat.presence.users").gauge().value());
+		PresenceDto delta = single(registry.drainChanges());
+		assertEquals(List.of("raj", "sid"), delta.joined());
+		assertNull(delta.users());
+
+		// raj is still on s2
+		registry.disconnect("s1");
+		assertEquals(2, registry.onlineCount("devs"));
+		assertTrue(registry.drainChanges().isEmpty());
+
+		registry.disconnect("s2");
+		assertEquals(1, registry.onlineCount("devs"));
+		assertEquals(List.of("raj"), single(registry.drainChanges()).left());
+	}
+
+	@Test
+	void coalescesJoinsAndLeavesBetweenPushes() {
+		registry.connect("s1", "raj");
+		registry.subscribe("s1", "sub-0", "devs");
+		registry.unsubscribe("s1", "sub-0");
+
+		// joined and left again before anything was pushed
+		assertTrue(registry.drainChanges().isEmpty());
+		assertEquals(0, registry.onlineCount("devs"));
+
+		registry.subscribe("s1", "sub-1", "devs");
+		registry.drainChanges();
+		registry.unsubscribe("s1", "sub-1");
+		registry.subscribe("s1", "sub-2", "devs");
+		assertTrue(registry.drainChanges().isEmpty());
+	}
+
+	@Test
+	void typingLapsesAfterItsTtl() {
+		registry.connect("s1", "raj");
+		registry.connect("s2", "sid");
+		registry.subscribe("s1", "sub-0", "devs");
+		registry.drainChanges();
+
+		registry.typing("s1", "devs", true);
+		// not online in the group
+		registry.typing("s2", "devs", true);
+		assertEquals(List.of("raj"), single(registry.drainChanges()).typing());
+		assertEquals(List.of("raj"), registry.snapshot("devs").typing());
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+		assertEquals(List.of(), single(registry.drainChanges()).typing());
+		assertTrue(registry.drainChanges().isEmpty());
+	}
+
+	@Test
+	void snapshotListsOnlineUsers() {
+		registry.connect("s1", "raj");
+		registry.connect("anonymous", " ");
+		registry.subscribe("s1", "sub-0", "devs");
+		registry.subscribe("anonymous", "sub-0", "devs");
+
+		PresenceDto snapshot = registry.snapshot("devs");
+		assertEquals(1, snapshot.online());
+		assertEquals(List.of("raj"), snapshot.users());
+		assertEquals(0, registry.snapshot("ops").online());
+	}
+
+	private static PresenceDto single(List<PresenceDto> changes) {
+		assertEquals(1, changes.size(), changes.toString());
+		return changes.get(0);
+	}
+
+}
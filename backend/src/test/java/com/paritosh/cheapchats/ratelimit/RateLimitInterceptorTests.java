@@ -0,0 +1,174 @@
+package com.paritosh.cheapchats.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.paritosh.cheapchats.config.RateLimitProperties;
+import com.paritosh.cheapchats.config.RateLimitProperties.Limit;
+import com.paritosh.cheapchats.config.RateLimitProperties.Overflow;
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RateLimitInterceptorTests {
+
+	private final AtomicLong now = new AtomicLong(1_000_000_000L);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final GroupAliasRegistry aliases = new GroupAliasRegistry(15);
+
+	@Test
+	void dropsSendsOverTheSessionBurstUntilTokensRefill() {
+		RateLimitInterceptor interceptor = interceptor(properties(new Limit(2, 3), new Limit(1000, 1000)));
+
+		for (int i = 0; i < 3; i++) {
+			assertNotNull(interceptor.preSend(send("s1", "devs"), null));
+		}
+		assertNull(interceptor.preSend(send("s1", "devs"), null));
+		// another session has its own bucket
+		assertNotNull(interceptor.preSend(send("s2", "devs"), null));
+
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+		assertNotNull(interceptor.preSend(send("s1", "devs"), null));
+		assertNull(interceptor.preSend(send("s1", "devs"), null));
+
+		assertEquals(2, rejected("session", "dropped"));
+	}
+
+	@Test
+	void limitsAGroupAcrossSessionsAndAliases() {
+		RateLimitInterceptor interceptor = interceptor(properties(new Limit(1000, 1000), new Limit(1, 2)));
+		aliases.register("devs-old", "devs");
+
+		assertNotNull(interceptor.preSend(send("s1", "devs"), null));
+		assertNotNull(interceptor.preSend(send("s2", "devs-old"), null));
+		assertNull(interceptor.preSend(send("s3", "devs"), null));
+		assertNotNull(interceptor.preSend(send("s3", "ops"), null));
+
+		assertEquals(1, rejected("group", "dropped"));
+	}
+
+	@Test
+	void throwsWhenOverflowIsError() {
+		RateLimitProperties properties = properties(new Limit(1, 1), new Limit(1000, 1000));
+		properties.setOverflow(Overflow.ERROR);
+		RateLimitInterceptor interceptor = interceptor(properties);
+
+		interceptor.preSend(send("s1", "devs"), null);
+		assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(send("s1", "devs"), null));
+		assertEquals(1, rejected("session", "error"));
+	}
+
+	@Test
+	void defersSendsThatAreOnlySlightlyEarly() {
+		RateLimitProperties properties = properties(new Limit(10, 1), new Limit(1000, 1000));
+		properties.setDeferMaxMs(200);
+		// real clock, the interceptor sleeps about 100ms for the next token
+		RateLimitInterceptor interceptor = new RateLimitInterceptor(properties, aliases, meterRegistry);
+
+		assertNotNull(interceptor.preSend(send("s1", "devs"), null));
+		assertNotNull(interceptor.preSend(send("s1", "devs"), null));
+		assertEquals(1, meterRegistry.get("chat.ratelimit.deferred").counter().count());
+	}
+
+	@Test
+	void ignoresOtherFramesAndDisabledLimits() {
+		RateLimitProperties properties = properties(new Limit(1, 1), new Limit(1, 1));
+		RateLimitInterceptor interceptor = interceptor(properties);
+
+		StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+		subscribe.setSessionId("s1");
+		subscribe.setDestination("/topic/group/devs");
+		for (int i = 0; i < 3; i++) {
+			assertNotNull(interceptor.preSend(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()), null));
+		}
+
+		properties.setEnabled(false);
+		for (int i = 0; i < 3; i++) {
+			assertNotNull(interceptor.preSend(send("s1", "devs"), null));
+		}
+	}
+
+	@Test
+	void forgetsSessionBucketOnDisconnect() {
+		RateLimitInterceptor interceptor = interceptor(properties(new Limit(1, 1), new Limit(1000, 1000)));
+
+		interceptor.preSend(send("s1", "devs"), null);
+		assertNull(interceptor.preSend(send("s1", "devs"), null));
+
+		Message<byte[]> disconnect = MessageBuilder.createMessage(new byte[0],
+				StompHeaderAccessor.create(StompCommand.DISCONNECT).getMessageHeaders());
+		interceptor.onDisconnect(new SessionDisconnectEvent(this, disconnect, "s1", CloseStatus.NORMAL));
+		assertNotNull(interceptor.preSend(send("s1", "devs"), null));
+	}
+
+	@Test
+	void groupRejectionDoesNotSpendTheSessionToken() {
+		RateLimitInterceptor interceptor = interceptor(properties(new Limit(1, 1), new Limit(1, 1)));
+
+		assertNotNull(interceptor.preSend(send("s1", "devs"), null));
+		assertNull(interceptor.preSend(send("s2", "devs"), null));
+		// s2's only token is still there for another group
+		assertNotNull(interceptor.preSend(send("s2", "ops"), null));
+
+		assertEquals(1, rejected("group", "dropped"));
+		assertEquals(0, rejected("session", "dropped"));
+	}
+
+	@Test
+	void forgetsUserBucketsOnceTheyHaveRefilled() {
+		RateLimitInterceptor interceptor = interceptor(properties(new Limit(2, 4), new Limit(1000, 1000)));
+
+		for (int i = 0; i < 3; i++) {
+			assertNotNull(interceptor.preSend(send("s" + i, "devs", "user" + i), null));
+		}
+		assertEquals(3, interceptor.senderBuckets());
+
+		// a full burst refills in two seconds, the buckets are no different from new ones after that
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(2100));
+		assertEquals(0, interceptor.senderBuckets());
+	}
+
+	private RateLimitInterceptor interceptor(RateLimitProperties properties) {
+		return new RateLimitInterceptor(properties, aliases, meterRegistry, now::get);
+	}
+
+	private static RateLimitProperties properties(Limit session, Limit group) {
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.setSession(session);
+		properties.setGroup(group);
+		return properties;
+	}
+
+	private double rejected(String scope, String action) {
+		return meterRegistry.get("chat.ratelimit.rejected").tag("scope", scope).tag("action", action).counter().count();
+	}
+
+	private static Message<byte[]> send(String sessionId, String groupName) {
+		return send(sessionId, groupName, null);
+	}
+
+	private static Message<byte[]> send(String sessionId, String groupName, String userName) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+		accessor.setSessionId(sessionId);
+		if (userName != null) {
+			accessor.setUser(() -> userName);
+		}
+		accessor.setDestination("/app/chat/" + groupName + "/send");
+		return MessageBuilder.createMessage("{}".getBytes(), accessor.getMessageHeaders());
+	}
+
+}
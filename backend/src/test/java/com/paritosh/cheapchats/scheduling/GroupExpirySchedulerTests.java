@@ -0,0 +1,91 @@
+package com.paritosh.cheapchats.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.paritosh.cheapchats.cache.GroupCache;
+import com.paritosh.cheapchats.cache.RecentMessageCache;
+import com.paritosh.cheapchats.dto.GroupExpiryDto;
+import com.paritosh.cheapchats.messaging.GroupBroadcaster;
+import com.paritosh.cheapchats.metrics.ChatMetrics;
+import com.paritosh.cheapchats.models.ChatGroup;
+import com.paritosh.cheapchats.repositories.ChatGroupRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GroupExpirySchedulerTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ChatGroupRepository repository = mock(ChatGroupRepository.class);
+	private final GroupBroadcaster broadcaster = mock(GroupBroadcaster.class);
+	private final GroupExpiryScheduler scheduler = new GroupExpiryScheduler(repository, broadcaster,
+			mock(RecentMessageCache.class), mock(JdbcTemplate.class), new ChatMetrics(registry),
+			new GroupCache(registry, 100, 30, true), registry, List.of(1L));
+
+	@BeforeEach
+	void setUp() {
+		when(repository.findByIsExpiredFalse()).thenReturn(List.of());
+		scheduler.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		scheduler.stop();
+	}
+
+	@Test
+	void warningTickPushesCountdownForAStoredGroup() {
+		// one minute and a bit ahead, with sub-microsecond digits Postgres does not keep
+		Instant expiresAt = Instant.now().plus(Duration.ofMinutes(1)).plusMillis(200)
+				.truncatedTo(ChronoUnit.MICROS).plusNanos(123);
+		when(repository.findById("devs")).thenReturn(Optional.of(group("devs", expiresAt.truncatedTo(ChronoUnit.MICROS))));
+
+		scheduler.schedule("devs", expiresAt);
+
+		ArgumentCaptor<GroupExpiryDto> pushed = ArgumentCaptor.forClass(GroupExpiryDto.class);
+		verify(broadcaster, timeout(5_000)).broadcastExpiry(pushed.capture());
+		assertEquals("devs", pushed.getValue().groupName());
+		assertEquals(0, pushed.getValue().minsLeft());
+		assertFalse(pushed.getValue().isExpired());
+	}
+
+	@Test
+	void warningTickFollowsAnExpiryExtendedElsewhere() {
+		Instant expiresAt = Instant.now().plus(Duration.ofMinutes(1)).plusMillis(200).truncatedTo(ChronoUnit.MICROS);
+		Instant extended = expiresAt.plus(Duration.ofMinutes(30));
+		when(repository.findById("devs")).thenReturn(Optional.of(group("devs", extended)));
+
+		scheduler.schedule("devs", expiresAt);
+
+		// the stale warning is dropped and the later ones are queued for the stored expiry instead
+		verify(repository, timeout(5_000)).findById("devs");
+		verify(broadcaster, after(500).never()).broadcastExpiry(any());
+	}
+
+	private static ChatGroup group(String name, Instant expiresAt) {
+		ChatGroup group = new ChatGroup();
+		group.setGroupName(name);
+		group.setCreatedBy("alice");
+		group.setExpiresAt(expiresAt);
+		return group;
+	}
+
+}
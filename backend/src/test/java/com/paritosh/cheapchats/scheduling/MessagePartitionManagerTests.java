@@ -0,0 +1,125 @@
+package com.paritosh.cheapchats.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.Container.ExecResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import com.paritosh.cheapchats.migration.MessageSearchMigration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Migration script and partition manager against a real Postgres, skipped when Docker is unavailable
+@Testcontainers(disabledWithoutDocker = true)
+class MessagePartitionManagerTests {
+
+	@Container
+	static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	private final LocalDate today = LocalDate.now();
+
+	private JdbcTemplate jdbcTemplate;
+	private MessagePartitionManager manager;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(),
+				POSTGRES.getPassword());
+		jdbcTemplate = new JdbcTemplate(dataSource);
+
+		// the tables as Hibernate creates them, then schema.sql and the search column, then some history before the migration
+		jdbcTemplate.execute("DROP TABLE IF EXISTS chat_message, chat_group CASCADE");
+		jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS chat_message_seq INCREMENT BY 50");
+		jdbcTemplate.execute("CREATE TABLE chat_group (group_name VARCHAR(255) PRIMARY KEY, "
+				+ "expires_at TIMESTAMP(6) WITH TIME ZONE, is_expired BOOLEAN NOT NULL)");
+		jdbcTemplate.execute("CREATE TABLE chat_message (id BIGINT PRIMARY KEY, group_name VARCHAR(255), "
+				+ "sender VARCHAR(255), content VARCHAR(255), timestamp TIMESTAMP(6), type VARCHAR(255))");
+		jdbcTemplate.execute("CREATE INDEX idx_chat_message_group_ts_id ON chat_message (group_name, timestamp, id)");
+		new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+		new MessageSearchMigration(jdbcTemplate, new DataSourceTransactionManager(dataSource)).migrate();
+
+		jdbcTemplate.update("INSERT INTO chat_group VALUES ('old', now() - interval '2 days', true), ('live', now() + interval '1 hour', false)");
+		insert(1, "gone", 3);
+		insert(2, "old", 2);
+		insert(3, "live", 2);
+		insert(4, "live", 0);
+
+		POSTGRES.copyFileToContainer(MountableFile.forClasspathResource("db/partition-chat-message.sql"), "/tmp/partition.sql");
+		ExecResult result = POSTGRES.execInContainer("psql", "-U", POSTGRES.getUsername(), "-d", POSTGRES.getDatabaseName(),
+				"-v", "ON_ERROR_STOP=1", "-f", "/tmp/partition.sql");
+		assertEquals(0, result.getExitCode(), result.getStderr());
+
+		manager = new MessagePartitionManager(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+				new SimpleMeterRegistry(), true, 5, 2000, 10, () -> today);
+	}
+
+	@Test
+	void migrationKeepsEveryMessageAndTheSearchColumn() {
+		assertTrue(manager.isActive());
+		assertEquals(4, jdbcTemplate.queryForObject("SELECT count(*) FROM chat_message", Integer.class));
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM chat_message_default", Integer.class));
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM chat_message WHERE content_tsv @@ to_tsquery('simple', 'live')",
+				Integer.class));
+		assertTrue(partitions().containsAll(List.of(partition(3), partition(0), partition(-3))));
+	}
+
+	@Test
+	void createsPartitionsAheadAndDropsDaysWithoutLiveGroups() {
+		manager.maintain();
+
+		List<String> partitions = partitions();
+		assertTrue(partitions.contains(partition(-5)));
+		// only "gone" and "old" wrote on those days, "live" keeps its day
+		assertFalse(partitions.contains(partition(3)));
+		assertTrue(partitions.contains(partition(2)));
+		assertTrue(partitions.contains(partition(0)));
+		assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM chat_message", Integer.class));
+
+		jdbcTemplate.update("UPDATE chat_group SET is_expired = true, expires_at = now() - interval '1 hour' WHERE group_name = 'live'");
+		manager.maintain();
+
+		// past days go once the group is expired beyond the retention, today's partition stays
+		assertFalse(partitions().contains(partition(2)));
+		assertTrue(partitions().contains(partition(0)));
+	}
+
+	@Test
+	void newMessagesLandInTodaysPartition() {
+		jdbcTemplate.update("INSERT INTO chat_message (id, group_name, sender, content, timestamp, type) "
+				+ "VALUES (5, 'live', 'raj', 'hello', localtimestamp, 'CHAT') ON CONFLICT DO NOTHING");
+
+		assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM " + partition(0), Integer.class));
+	}
+
+	private void insert(long id, String groupName, int daysAgo) {
+		jdbcTemplate.update("INSERT INTO chat_message (id, group_name, sender, content, timestamp, type) "
+				+ "VALUES (?, ?, 'raj', ?, localtimestamp - make_interval(days => ?), 'CHAT')", id, groupName, groupName, daysAgo);
+	}
+
+	// daysAgo counts backwards, negative days are ahead of today
+	private String partition(int daysAgo) {
+		return MessagePartitionManager.partitionName(today.minusDays(daysAgo));
+	}
+
+	private List<String> partitions() {
+		return jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+				+ "WHERE i.inhparent = 'chat_message'::regclass", String.class);
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.paritosh.cheapchats.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.dto.MessageSearchPage;
+import com.paritosh.cheapchats.migration.MessageSearchMigration;
+import com.paritosh.cheapchats.services.impl.MessageSearchServiceImpl;
+
+// Search against the real content_tsv column and GIN index, skipped when Docker is unavailable
+@Testcontainers(disabledWithoutDocker = true)
+class MessageSearchServiceTests {
+
+	@Container
+	static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	private DriverManagerDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private MessageSearchMigration migration;
+	private MessageSearchServiceImpl searchService;
+
+	@BeforeEach
+	void setUp() {
+		dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(),
+				POSTGRES.getPassword());
+		jdbcTemplate = new JdbcTemplate(dataSource);
+
+		// the table as Hibernate creates it, then the same schema.sql and startup migration the application runs
+		createTable();
+		new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+		migration = new MessageSearchMigration(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+		migration.migrate();
+
+		searchService = new MessageSearchServiceImpl();
+		ReflectionTestUtils.setField(searchService, "jdbcTemplate", new NamedParameterJdbcTemplate(dataSource));
+		ReflectionTestUtils.setField(searchService, "defaultLimit", 20);
+		ReflectionTestUtils.setField(searchService, "maxLimit", 100);
+		ReflectionTestUtils.setField(searchService, "maxCandidates", 1000);
+		ReflectionTestUtils.setField(searchService, "maxQueryLength", 200);
+	}
+
+	@Test
+	void ranksMatchesWithinTheGroup() {
+		insert(1, "devs", "deploy is done", "CHAT");
+		insert(2, "devs", "deploy deploy again, the deploy failed", "CHAT");
+		insert(3, "devs", "lunch?", "CHAT");
+		insert(4, "ops", "deploy on ops", "CHAT");
+		insert(5, "devs", "raj joined the deploy chat", "JOIN");
+
+		List<ChatMessageDto> hits = searchService.search("devs", "deploy", null, null).getMessages();
+
+		assertEquals(List.of(2L, 1L), hits.stream().map(ChatMessageDto::getId).toList());
+		assertEquals("deploy is done", hits.get(1).getContent());
+	}
+
+	@Test
+	void supportsPhrasesAndExclusions() {
+		insert(1, "devs", "the build is red", "CHAT");
+		insert(2, "devs", "red build again", "CHAT");
+		insert(3, "devs", "build is green, not red", "CHAT");
+
+		assertEquals(List.of(1L), ids(searchService.search("devs", "\"build is red\"", null, null)));
+		assertEquals(List.of(2L, 1L), ids(searchService.search("devs", "red build -green", null, null)));
+	}
+
+	@Test
+	void pagesThroughHits() {
+		for (int i = 1; i <= 5; i++) {
+			insert(i, "devs", "standup notes " + i, "CHAT");
+		}
+
+		MessageSearchPage first = searchService.search("devs", "standup", 0, 2);
+		assertEquals(List.of(5L, 4L), ids(first));
+		assertEquals(1, first.getNextPage());
+
+		MessageSearchPage last = searchService.search("devs", "standup", 2, 2);
+		assertEquals(List.of(1L), ids(last));
+		assertNull(last.getNextPage());
+	}
+
+	@Test
+	void rejectsBlankQueries() {
+		assertThrows(IllegalArgumentException.class, () -> searchService.search("devs", "  ", null, null));
+	}
+
+	@Test
+	void existingMessagesGetTheColumnFromTheOneTimeScriptOnly() {
+		createTable();
+		insert(1, "devs", "deploy is done", "CHAT");
+
+		// rewriting a table that holds messages is left to the script
+		migration.migrate();
+		assertEquals(0, columns());
+
+		new ResourceDatabasePopulator(new ClassPathResource("db/message-search.sql")).execute(dataSource);
+		assertEquals(1, columns());
+		assertEquals(List.of(1L), ids(searchService.search("devs", "deploy", null, null)));
+	}
+
+	private void createTable() {
+		jdbcTemplate.execute("DROP TABLE IF EXISTS chat_message");
+		jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS chat_message_seq INCREMENT BY 50");
+		jdbcTemplate.execute("CREATE TABLE chat_message (id BIGINT PRIMARY KEY, group_name VARCHAR(255), "
+				+ "sender VARCHAR(255), content VARCHAR(255), timestamp TIMESTAMP(6), type VARCHAR(255))");
+	}
+
+	private int columns() {
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM information_schema.columns "
+				+ "WHERE table_name = 'chat_message' AND column_name = 'content_tsv'", Integer.class);
+	}
+
+	private void insert(long id, String groupName, String content, String type) {
+		jdbcTemplate.update("INSERT INTO chat_message (id, group_name, sender, content, timestamp, type) "
+				+ "VALUES (?, ?, 'raj', ?, now() + make_interval(secs => ?), ?)", id, groupName, content, id, type);
+	}
+
+	private static List<Long> ids(MessageSearchPage page) {
+		return page.getMessages().stream().map(ChatMessageDto::getId).toList();
+	}
+
+}
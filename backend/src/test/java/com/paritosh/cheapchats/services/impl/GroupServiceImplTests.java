@@ -0,0 +1,152 @@
+package com.paritosh.cheapchats.services.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.paritosh.cheapchats.cache.RecentMessageCache;
+import com.paritosh.cheapchats.messaging.GroupAliasRegistry;
+import com.paritosh.cheapchats.messaging.GroupBroadcaster;
+import com.paritosh.cheapchats.metrics.ChatMetrics;
+import com.paritosh.cheapchats.models.ChatGroup;
+import com.paritosh.cheapchats.repositories.ChatGroupRepository;
+import com.paritosh.cheapchats.repositories.ChatMessageRepository;
+import com.paritosh.cheapchats.repositories.GroupMemberRepository;
+import com.paritosh.cheapchats.scheduling.ExpiredGroupCleanupJob;
+import com.paritosh.cheapchats.scheduling.GroupExpiryScheduler;
+import com.paritosh.cheapchats.services.MessagePersistenceService;
+
+class GroupServiceImplTests {
+
+	private final ChatGroupRepository chatGroupRepository = mock(ChatGroupRepository.class);
+	private final GroupMemberRepository groupMemberRepository = mock(GroupMemberRepository.class);
+	private final ExpiredGroupCleanupJob expiredGroupCleanupJob = mock(ExpiredGroupCleanupJob.class);
+	private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+	private final MessagePersistenceService messagePersistenceService = mock(MessagePersistenceService.class);
+	private final GroupAliasRegistry aliases = new GroupAliasRegistry(15);
+	private final GroupServiceImpl groupService = new GroupServiceImpl();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(groupService, "chatGroupRepository", chatGroupRepository);
+		ReflectionTestUtils.setField(groupService, "chatMessageRepository", mock(ChatMessageRepository.class));
+		ReflectionTestUtils.setField(groupService, "groupMemberRepository", groupMemberRepository);
+		ReflectionTestUtils.setField(groupService, "recentMessageCache", mock(RecentMessageCache.class));
+		ReflectionTestUtils.setField(groupService, "groupExpiryScheduler", mock(GroupExpiryScheduler.class));
+		ReflectionTestUtils.setField(groupService, "expiredGroupCleanupJob", expiredGroupCleanupJob);
+		ReflectionTestUtils.setField(groupService, "messagePersistenceService", messagePersistenceService);
+		ReflectionTestUtils.setField(groupService, "groupAliasRegistry", aliases);
+		ReflectionTestUtils.setField(groupService, "groupBroadcaster", mock(GroupBroadcaster.class));
+		ReflectionTestUtils.setField(groupService, "transactionTemplate", new TransactionTemplate(transactionManager));
+		ReflectionTestUtils.setField(groupService, "chatMetrics", mock(ChatMetrics.class));
+
+		when(chatGroupRepository.save(any(ChatGroup.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(chatGroupRepository.findById("devs")).thenReturn(Optional.of(group("devs")));
+	}
+
+	@Test
+	void oldNameOfARenamedGroupCannotBeTakenByANewGroup() {
+		assertTrue(groupService.updateGroupInfo("devs", "devs-2", null));
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> groupService.createChatGroup("devs", "sid", 60));
+		assertTrue(e.getMessage().contains("already exists"));
+		verify(chatGroupRepository, never()).save(any(ChatGroup.class));
+
+		// sends to the old name still reach the renamed group and nothing else
+		assertEquals("devs-2", aliases.resolve("devs"));
+	}
+
+	@Test
+	void anotherGroupCannotBeRenamedOntoALiveAlias() {
+		when(chatGroupRepository.findById("ops")).thenReturn(Optional.of(group("ops")));
+		assertTrue(groupService.updateGroupInfo("devs", "devs-2", null));
+
+		assertThrows(IllegalArgumentException.class, () -> groupService.updateGroupInfo("ops", "devs", null));
+		assertEquals("devs-2", aliases.resolve("devs"));
+
+		// the renamed group itself may take its old name back
+		when(chatGroupRepository.findById("devs-2")).thenReturn(Optional.of(group("devs-2")));
+		assertTrue(groupService.updateGroupInfo("devs-2", "devs", null));
+		assertEquals("devs", aliases.resolve("devs"));
+	}
+
+	@Test
+	void createsGroupUnderAFreeName() {
+		ChatGroup created = groupService.createChatGroup("ops", "raj", 60);
+
+		assertEquals("ops", created.getGroupName());
+		verify(groupMemberRepository).addMember("ops", "raj");
+
+		// the scheduled expiry must equal the one Postgres reads back, which keeps microseconds only
+		assertEquals(created.getExpiresAt().truncatedTo(ChronoUnit.MICROS), created.getExpiresAt());
+	}
+
+	@Test
+	void deletingAGroupDeletesItsMembershipsWithTheGroupRow() {
+		groupService.deleteGroup("devs");
+
+		InOrder order = inOrder(messagePersistenceService, expiredGroupCleanupJob, chatGroupRepository, transactionManager);
+		// messages still in the write-behind queue would be inserted after the purge
+		order.verify(messagePersistenceService).flush();
+		order.verify(expiredGroupCleanupJob).purgeMessages("devs");
+		order.verify(transactionManager).getTransaction(any());
+		order.verify(expiredGroupCleanupJob).purgeMembers("devs");
+		order.verify(chatGroupRepository).deleteById("devs");
+		order.verify(transactionManager).commit(any());
+	}
+
+	@Test
+	void newGroupDoesNotInheritMembershipsOfAnEarlierGroupWithItsName() {
+		groupService.createChatGroup("ops", "raj", 60);
+
+		InOrder order = inOrder(expiredGroupCleanupJob, groupMemberRepository);
+		order.verify(expiredGroupCleanupJob).purgeMembers("ops");
+		order.verify(groupMemberRepository).addMember("ops", "raj");
+	}
+
+	@Test
+	void renamePurgesLeftoversOfTheNewNameBeforeMessagesCanBeSentUnderIt() {
+		doAnswer(invocation -> {
+			// once the alias exists, sends to the old name are stored under the new one and must survive
+			assertFalse(aliases.isAlias("devs"));
+			return 0L;
+		}).when(expiredGroupCleanupJob).purgeLeftoverMessages("devs-2");
+
+		assertTrue(groupService.updateGroupInfo("devs", "devs-2", null));
+
+		InOrder order = inOrder(expiredGroupCleanupJob, messagePersistenceService);
+		order.verify(expiredGroupCleanupJob).purgeLeftoverMessages("devs-2");
+		order.verify(messagePersistenceService).flush();
+		assertEquals("devs-2", aliases.resolve("devs"));
+	}
+
+	private static ChatGroup group(String name) {
+		ChatGroup group = new ChatGroup();
+		group.setGroupName(name);
+		group.setCreatedBy("raj");
+		group.setExpiresAt(Instant.now().plus(Duration.ofMinutes(30)));
+		return group;
+	}
+
+}
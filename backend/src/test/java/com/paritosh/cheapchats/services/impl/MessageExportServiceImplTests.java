@@ -0,0 +1,61 @@
+package com.paritosh.cheapchats.services.impl;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import com.paritosh.cheapchats.services.MessageExportService.Format;
+import com.paritosh.cheapchats.services.MessagePersistenceService;
+
+class MessageExportServiceImplTests {
+
+	private final MessageExportServiceImpl exportService = new MessageExportServiceImpl(mock(DataSource.class),
+			mock(PlatformTransactionManager.class), mock(MessagePersistenceService.class), 500, 1, 60_000);
+
+	private final MockHttpServletRequest request = new MockHttpServletRequest();
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+	@BeforeEach
+	void setUp() {
+		request.setAsyncSupported(true);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+	}
+
+	@AfterEach
+	void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void permitComesBackWhenTheRequestEndsBeforeTheBodyRuns() throws Exception {
+		assertNotNull(exportService.export("devs", Format.NDJSON, false));
+		assertNull(exportService.export("ops", Format.NDJSON, false));
+
+		// async processing starts, but the client is gone before the body gets a thread
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+		asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+		asyncManager.setTaskExecutor(mock(AsyncTaskExecutor.class));
+		asyncManager.startCallableProcessing(() -> null);
+		((MockAsyncContext) request.getAsyncContext()).complete();
+
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+		assertNotNull(exportService.export("ops", Format.NDJSON, false));
+	}
+
+}
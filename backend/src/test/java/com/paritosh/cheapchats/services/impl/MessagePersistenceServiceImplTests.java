@@ -0,0 +1,290 @@
+package com.paritosh.cheapchats.services.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+import com.paritosh.cheapchats.models.ChatMessage;
+
+class MessagePersistenceServiceImplTests {
+
+	private final RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+	private MessagePersistenceServiceImpl writer;
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		jdbcTemplate.release.countDown();
+		if (writer != null) {
+			writer.stop();
+		}
+	}
+
+	@Test
+	void writesAFullBatchWithoutWaitingForTheLinger() {
+		writer = start(3, 3_000, 100, 50);
+
+		long started = System.nanoTime();
+		List<Long> ids = persist(3);
+
+		await(() -> jdbcTemplate.written().size() == 3);
+		assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1));
+		assertEquals(List.of(ids), jdbcTemplate.batches);
+	}
+
+	@Test
+	void writesAPartialBatchOnceTheLingerWindowCloses() {
+		writer = start(100, 50, 100, 50);
+
+		List<Long> ids = persist(2);
+
+		await(() -> jdbcTemplate.written().size() == 2);
+		assertEquals(List.of(ids), jdbcTemplate.batches);
+	}
+
+	@Test
+	void callerWritesItselfWhenTheQueueIsFull() throws InterruptedException {
+		writer = start(1, 50, 1, 0);
+		jdbcTemplate.blockFirstBatch = true;
+
+		// the flusher holds the first message in a stuck write, the second fills the queue
+		long first = persist(1).get(0);
+		assertTrue(jdbcTemplate.entered.await(5, TimeUnit.SECONDS));
+		long second = persist(1).get(0);
+
+		List<Long> third = new CopyOnWriteArrayList<>();
+		Thread caller = new Thread(() -> third.add(writer.persist(message("hello")).getId()), "caller");
+		caller.start();
+		await(() -> caller.getState() == Thread.State.WAITING);
+
+		jdbcTemplate.release.countDown();
+		caller.join(5_000);
+
+		await(() -> jdbcTemplate.written().containsAll(List.of(first, second, third.get(0))));
+		int callerBatch = jdbcTemplate.batches.indexOf(List.of(third.get(0)));
+		assertTrue(callerBatch >= 0, jdbcTemplate.batches.toString());
+		assertEquals("caller", jdbcTemplate.threads.get(callerBatch));
+	}
+
+	@Test
+	void flushIfPendingWritesTheMessageBeforeReturning() {
+		writer = start(100, 500, 100, 50);
+
+		long id = persist(1).get(0);
+		writer.flushIfPending(id);
+
+		assertEquals(List.of(id), jdbcTemplate.written());
+
+		// nothing pending, nothing written
+		writer.flushIfPending(id);
+		writer.flushIfPending(null);
+		assertEquals(1, jdbcTemplate.batches.size());
+	}
+
+	@Test
+	void shutdownWritesEveryAcceptedMessage() throws InterruptedException {
+		writer = start(50, 25, 10_000, 50);
+
+		AtomicBoolean sending = new AtomicBoolean(true);
+		List<Long> accepted = new CopyOnWriteArrayList<>();
+		List<Thread> senders = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			Thread sender = new Thread(() -> {
+				while (sending.get()) {
+					accepted.add(writer.persist(message("hello")).getId());
+				}
+			});
+			sender.start();
+			senders.add(sender);
+		}
+
+		await(() -> accepted.size() > 500);
+		writer.stop();
+		sending.set(false);
+		for (Thread sender : senders) {
+			sender.join(5_000);
+		}
+
+		assertEquals(new HashSet<>(accepted), new HashSet<>(jdbcTemplate.written()));
+		assertEquals(accepted.size(), jdbcTemplate.written().size());
+		writer = null;
+	}
+
+	@Test
+	void aRejectedRowIsDroppedAloneAfterTheBatchFails() {
+		writer = start(100, 500, 100, 50);
+
+		long good = writer.persist(message("hello")).getId();
+		long bad = writer.persist(message(RecordingJdbcTemplate.REJECTED)).getId();
+		long alsoGood = writer.persist(message("world")).getId();
+		writer.flush();
+
+		assertEquals(List.of(good, alsoGood), jdbcTemplate.written());
+		assertFalse(jdbcTemplate.written().contains(bad));
+		// the batch is not retried, a rejected row fails it every time
+		assertEquals(1, jdbcTemplate.failedBatches.get());
+	}
+
+	@Test
+	void aBatchIsKeptAndRetriedWhileTheDatabaseIsDown() {
+		writer = start(100, 500, 100, 50);
+		// more failures than max-write-attempts, the writer is still running so it keeps trying
+		jdbcTemplate.outages.set(5);
+
+		List<Long> ids = persist(3);
+		writer.flush();
+
+		assertEquals(ids, jdbcTemplate.written());
+		assertEquals(0, jdbcTemplate.outages.get());
+	}
+
+	@Test
+	void backOffDoublesUpToTheCap() {
+		MessagePersistenceServiceImpl service = new MessagePersistenceServiceImpl(jdbcTemplate, 100, 500, 100, 50, 3, 1_000);
+
+		assertEquals(List.of(100L, 200L, 400L, 800L, 1_000L, 1_000L), List.of(service.backOffMillis(1),
+				service.backOffMillis(2), service.backOffMillis(3), service.backOffMillis(4), service.backOffMillis(5),
+				service.backOffMillis(64)));
+	}
+
+	private MessagePersistenceServiceImpl start(int batchSize, long lingerMillis, int capacity, long enqueueTimeoutMillis) {
+		MessagePersistenceServiceImpl service = new MessagePersistenceServiceImpl(jdbcTemplate, batchSize, lingerMillis,
+				capacity, enqueueTimeoutMillis, 3, 10);
+		service.start();
+		return service;
+	}
+
+	private List<Long> persist(int count) {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add(writer.persist(message("hello " + i)).getId());
+		}
+		return ids;
+	}
+
+	private static ChatMessage message(String content) {
+		ChatMessage message = new ChatMessage();
+		message.setGroupName("devs");
+		message.setSender("raj");
+		message.setContent(content);
+		message.setTimestamp(LocalDateTime.now());
+		message.setType("CHAT");
+		return message;
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+			Thread.onSpinWait();
+		}
+	}
+
+	// Records what reaches the database instead of writing it; rows with REJECTED content fail like a constraint violation
+	// and batch writes fail while outages are left
+	private static class RecordingJdbcTemplate extends JdbcTemplate {
+
+		static final String REJECTED = "rejected";
+
+		final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+		final List<String> threads = new CopyOnWriteArrayList<>();
+		final AtomicLong failedBatches = new AtomicLong();
+		// batch writes still to fail as if the database were unreachable
+		final AtomicInteger outages = new AtomicInteger();
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		volatile boolean blockFirstBatch;
+
+		private final AtomicLong sequence = new AtomicLong(1);
+
+		@Override
+		public <T> T queryForObject(String sql, Class<T> requiredType) {
+			return requiredType.cast(sequence.getAndAdd(ChatMessage.ID_ALLOCATION_SIZE));
+		}
+
+		@Override
+		public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+				ParameterizedPreparedStatementSetter<T> pss) {
+			if (blockFirstBatch && entered.getCount() > 0) {
+				entered.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (outages.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+				throw new TransientDataAccessResourceException("connection refused");
+			}
+			List<Long> ids = new ArrayList<>();
+			for (T arg : batchArgs) {
+				ChatMessage message = (ChatMessage) arg;
+				if (REJECTED.equals(message.getContent())) {
+					failedBatches.incrementAndGet();
+					throw new DataIntegrityViolationException("value too long");
+				}
+				ids.add(message.getId());
+			}
+			record(ids);
+			return new int[][] { new int[ids.size()] };
+		}
+
+		@Override
+		public int update(String sql, PreparedStatementSetter pss) {
+			PreparedStatement ps = mock(PreparedStatement.class);
+			try {
+				pss.setValues(ps);
+				ArgumentCaptor<Long> id = ArgumentCaptor.forClass(Long.class);
+				ArgumentCaptor<String> content = ArgumentCaptor.forClass(String.class);
+				verify(ps).setLong(eq(1), id.capture());
+				verify(ps).setString(eq(4), content.capture());
+				if (REJECTED.equals(content.getValue())) {
+					throw new DataIntegrityViolationException("value too long");
+				}
+				record(List.of(id.getValue()));
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+			return 1;
+		}
+
+		List<Long> written() {
+			List<Long> ids = new ArrayList<>();
+			batches.forEach(ids::addAll);
+			return ids;
+		}
+
+		private synchronized void record(List<Long> ids) {
+			batches.add(ids);
+			threads.add(Thread.currentThread().getName());
+		}
+
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.paritosh.cheapchats.services.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paritosh.cheapchats.dto.ChatMessageDto;
+import com.paritosh.cheapchats.services.MessageExportService.Format;
+
+class TranscriptWriterTests {
+
+	private static final LocalDateTime NOON = LocalDateTime.of(2025, 1, 1, 12, 0, 0, 123_000_000);
+
+	@Test
+	void writesOneJsonObjectPerLineMatchingTheDto() throws IOException {
+		String ndjson = write(Format.NDJSON);
+
+		List<String> lines = ndjson.lines().toList();
+		assertEquals(2, lines.size());
+		assertEquals('\n', ndjson.charAt(ndjson.length() - 1));
+
+		ChatMessageDto first = new ObjectMapper().readValue(lines.get(0), ChatMessageDto.class);
+		assertEquals(1L, first.getId());
+		assertEquals("raj", first.getSender());
+		assertEquals("hello, \"team\"\nsecond line", first.getContent());
+		assertEquals(NOON.toString(), first.getTimestamp());
+		assertEquals("CHAT", first.getType());
+	}
+
+	@Test
+	void quotesCsvFieldsAndDefusesFormulas() throws IOException {
+		assertEquals("id,timestamp,sender,type,content\r\n"
+				+ "1,2025-01-01T12:00:00.123,raj,CHAT,\"hello, \"\"team\"\"\nsecond line\"\r\n"
+				+ "2,2025-01-01T12:00:00.123,sid,CHAT,\"'=HYPERLINK(\"\"x\"\")\"\r\n", write(Format.CSV));
+	}
+
+	@Test
+	void writesNothingButTheHeaderForAnEmptyGroup() throws IOException {
+		assertEquals("", render(Format.NDJSON, false));
+		assertEquals("id,timestamp,sender,type,content\r\n", render(Format.CSV, false));
+	}
+
+	private static String write(Format format) throws IOException {
+		return render(format, true);
+	}
+
+	private static String render(Format format, boolean withRows) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TranscriptWriter writer = TranscriptWriter.of(format, out);
+		if (withRows) {
+			writer.write(1L, "raj", "hello, \"team\"\nsecond line", NOON, "CHAT");
+			writer.write(2L, "sid", "=HYPERLINK(\"x\")", NOON, "CHAT");
+		}
+		writer.finish();
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+}
@@ -2,7 +2,7 @@ import React, { useEffect, useRef, useState, useCallback } from "react";
 import { useParams, useNavigate } from "react-router-dom";
 import SockJS from "sockjs-client";
 import { CompatClient, Stomp } from "@stomp/stompjs";
-import type { ChatMessage } from "../types";
+import type { ChatMessage, GroupExpiry, GroupPresence } from "../types";
 import { FiArrowDown, FiSend } from "react-icons/fi";
 import {
   BsArrowLeft,
@@ -52,6 +52,13 @@ const ChatRoom: React.FC = () => {
   const [minsLeft, setMinsLeft] = useState<number>(60);
   const [newExpiryTime, setNewExpiryTime] = useState(60);
   const [isGroupExpired, setIsGroupExpired] = useState(false);
+  const expiryPushed = useRef(false); // set once the server pushed expiry state
+  const [onlineCount, setOnlineCount] = useState(0); // users online in the group
+  const [typingUsers, setTypingUsers] = useState<string[]>([]); // other users typing right now
+  const lastTypingSent = useRef(0); // when the typing indicator was last sent, 0 when stopped
+  const [nextCursor, setNextCursor] = useState<string | null>(null); // cursor of the next older page, null when all loaded
+  const loadingOlder = useRef(false); // an older page is being fetched
+  const heightBeforePrepend = useRef<number | null>(null); // list height before older messages were prepended
 
   // fetch persisted messages
   useEffect(() => {
@@ -77,11 +84,13 @@ const ChatRoom: React.FC = () => {
     // fetch persisted messages
     const fetchMessages = async () => {
       try {
-        const data = await getGroupMessages(groupName);
-        setMessages(data);
+        const page = await getGroupMessages(groupName);
+        setMessages(page.messages);
+        setNextCursor(page.nextCursor);
       } catch (error) {
         console.error("Failed to fetch messages:", error);
         setMessages([]);
+        setNextCursor(null);
       }
     };
 
@@ -94,39 +103,84 @@ const ChatRoom: React.FC = () => {
     stompClient.current = Stomp.over(socket);
 
     stompClient.current.connect(
-      {},
+      // identifies the session for presence and typing indicators
+      { username: username },
       () => {
         console.log("WebSocket connected successfully");
 
-        // Subscribe to group messages
+        const onGroupMessage = (msg: ChatMessage) => {
+          console.log("Received WebSocket message:", msg);
+
+          if (msg.type === "EXPIRED") {
+            // server-side expiry event, stop the countdown right away
+            setMinsLeft(0);
+            setIsGroupExpired(true);
+          } else if (msg.type === "RENAME") {
+            // group was renamed, move to the new topic (content carries the new name)
+            setResolvedGroupName(msg.content);
+            navigate(`/group/${msg.content}`);
+          } else if (msg.type === "DELETE") {
+            console.log("Processing DELETE message for ID:", msg.id);
+            // Remove the deleted message from the UI
+            setMessages((prev) => {
+              const filtered = prev.filter((m) => m.id !== msg.id);
+              console.log(
+                `Removed message ${msg.id}. Messages count: ${prev.length} -> ${filtered.length}`
+              );
+              return filtered;
+            });
+          } else {
+            // Add new message to the UI only if not already present
+            setMessages((prev) => {
+              if (msg.id && prev.some((m) => m.id === msg.id)) {
+                return prev;
+              }
+              return [...prev, msg];
+            });
+          }
+        };
+
+        // Subscribe to group messages, as coalesced arrays when the server batches frames
+        if (import.meta.env.VITE_STOMP_BATCH === "true") {
+          stompClient.current?.subscribe(
+            `/topic/group/${groupName}/batch`,
+            (payload: { body: string }) => {
+              const batch: ChatMessage[] = JSON.parse(payload.body);
+              batch.forEach(onGroupMessage);
+            }
+          );
+        } else {
+          stompClient.current?.subscribe(
+            `/topic/group/${groupName}`,
+            (payload: { body: string }) => {
+              onGroupMessage(JSON.parse(payload.body));
+            }
+          );
+        }
+
+        // Expiry countdown pushed by the server: once on subscribe, then on changes and near expiry
         stompClient.current?.subscribe(
-          `/topic/group/${groupName}`,
+          `/topic/group/${groupName}/expiry`,
           (payload: { body: string }) => {
-            const msg: ChatMessage = JSON.parse(payload.body);
-            console.log("Received WebSocket message:", msg);
-
-            if (msg.type === "DELETE") {
-              console.log("Processing DELETE message for ID:", msg.id);
-              // Remove the deleted message from the UI
-              setMessages((prev) => {
-                const filtered = prev.filter((m) => m.id !== msg.id);
-                console.log(
-                  `Removed message ${msg.id}. Messages count: ${prev.length} -> ${filtered.length}`
-                );
-                return filtered;
-              });
-            } else {
-              // Add new message to the UI only if not already present
-              setMessages((prev) => {
-                if (msg.id && prev.some((m) => m.id === msg.id)) {
-                  return prev;
-                }
-                return [...prev, msg];
-              });
+            const expiry: GroupExpiry = JSON.parse(payload.body);
+            expiryPushed.current = true;
+            setMinsLeft(expiry.secondsLeft / 60);
+            if (expiry.isExpired) {
+              setIsGroupExpired(true);
             }
           }
         );
 
+        // Online users and typing indicators: a snapshot on subscribe, then coalesced changes
+        stompClient.current?.subscribe(
+          `/topic/group/${groupName}/presence`,
+          (payload: { body: string }) => {
+            const presence: GroupPresence = JSON.parse(payload.body);
+            setOnlineCount(presence.online);
+            setTypingUsers(presence.typing.filter((user) => user !== username));
+          }
+        );
+
         // Send JOIN message only if just joined
         if (sessionStorage.getItem("justJoinedGroup") === "true") {
           const joinMsg: ChatMessage = {
@@ -222,15 +276,64 @@ const ChatRoom: React.FC = () => {
     return () => el.removeEventListener("scroll", handleScroll);
   }, [handleScroll]);
 
+  // LOAD OLDER MESSAGES, one page before the oldest loaded message
+  const loadOlderMessages = useCallback(async () => {
+    if (!groupName || !nextCursor || loadingOlder.current) return;
+    loadingOlder.current = true;
+    try {
+      const page = await getGroupMessages(groupName, nextCursor);
+      heightBeforePrepend.current = messageListRef.current?.scrollHeight ?? null;
+      setMessages((prev) => [
+        ...page.messages.filter((m) => !m.id || !prev.some((p) => p.id === m.id)),
+        ...prev,
+      ]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error("Failed to fetch older messages:", error);
+    } finally {
+      loadingOlder.current = false;
+    }
+  }, [groupName, nextCursor]);
+
+  // LOAD OLDER MESSAGES when scrolled to the top
+  useEffect(() => {
+    const el = messageListRef.current;
+    if (!el) return;
+    const onScroll = () => {
+      if (el.scrollTop < 50) loadOlderMessages();
+    };
+    el.addEventListener("scroll", onScroll);
+    return () => el.removeEventListener("scroll", onScroll);
+  }, [loadOlderMessages]);
+
   // SCROLL TO BOTTOM
   const scrollToBottom = () => {
     chatEndRef.current?.scrollIntoView({ behavior: "smooth" });
     focusInput();
   };
 
+  // Typing indicator, refreshed at most every 2s while typing (the server drops it after 5s of silence)
+  const sendTyping = useCallback(
+    (typing: boolean) => {
+      if (!stompClient.current?.connected) return;
+      stompClient.current.send(
+        `/app/chat/${groupName}/typing`,
+        {},
+        JSON.stringify({ typing })
+      );
+      lastTypingSent.current = typing ? Date.now() : 0;
+    },
+    [groupName]
+  );
+
   // Auto-expand textarea
   const handleInputChange = (e: React.ChangeEvent<HTMLTextAreaElement>) => {
     setInput(e.target.value);
+    if (e.target.value && Date.now() - lastTypingSent.current > 2000) {
+      sendTyping(true);
+    } else if (!e.target.value && lastTypingSent.current) {
+      sendTyping(false);
+    }
     // Auto-resize
     const textarea = e.target;
     textarea.style.height = "auto";
@@ -268,6 +371,11 @@ const ChatRoom: React.FC = () => {
       JSON.stringify(msg)
     );
 
+    // the message itself ends the typing indicator
+    if (lastTypingSent.current) {
+      sendTyping(false);
+    }
+
     // update local messages state
     setInput("");
     setReplyTo(null);
@@ -276,7 +384,7 @@ const ChatRoom: React.FC = () => {
       inputRef.current.style.height = "auto";
       focusInput();
     }
-  }, [input, stompClient, username, groupName, replyTo]);
+  }, [input, stompClient, username, groupName, replyTo, sendTyping]);
 
   // Handle keydown for textarea
   const handleInputKeyDown = (e: React.KeyboardEvent<HTMLTextAreaElement>) => {
@@ -317,8 +425,14 @@ const ChatRoom: React.FC = () => {
     focusInput();
   };
 
-  // SCROLL INTO VIEW
+  // SCROLL INTO VIEW, or keep the view in place when older messages were prepended
   useEffect(() => {
+    const el = messageListRef.current;
+    if (heightBeforePrepend.current !== null && el) {
+      el.scrollTop += el.scrollHeight - heightBeforePrepend.current;
+      heightBeforePrepend.current = null;
+      return;
+    }
     chatEndRef.current?.scrollIntoView({ behavior: "smooth" });
   }, [messages]);
 
@@ -341,7 +455,7 @@ const ChatRoom: React.FC = () => {
   useEffect(() => {
     const fetchExpiryTime = async () => {
       try {
-        const response = await getGroupExpiryIn(resolvedGroupName);
+        const response = await getGroupExpiryIn(groupName!);
         console.log("expires in:", response.data.minsLeft);
         setMinsLeft(response.data.minsLeft);
 
@@ -353,7 +467,10 @@ const ChatRoom: React.FC = () => {
       }
     };
 
-    if (resolvedGroupName !== "Loading...") fetchExpiryTime();
+    // cold-path fallback, only when no expiry push arrived over STOMP
+    const fallback = setTimeout(() => {
+      if (!expiryPushed.current && groupName) fetchExpiryTime();
+    }, 3000);
 
     // update timer every second
     const timer = setInterval(() => {
@@ -389,7 +506,10 @@ const ChatRoom: React.FC = () => {
       });
     }, 1000);
 
-    return () => clearInterval(timer);
+    return () => {
+      clearTimeout(fallback);
+      clearInterval(timer);
+    };
   }, [stompClient]);
 
   // UPDATE GROUP
@@ -408,12 +528,7 @@ const ChatRoom: React.FC = () => {
       }
 
       setShowGroupSettings(false);
-
-      // Refresh expiry time
-      const response = await getGroupExpiryIn(newGroupName || groupName!);
-      if (response.data.minsLeft) {
-        setMinsLeft(response.data.minsLeft);
-      }
+      // the new expiry time is pushed on the expiry topic
     } catch (error) {
       // group already exists
       if (
@@ -520,6 +635,9 @@ const ChatRoom: React.FC = () => {
               ⏳ {formattedTimeLeft(minsLeft)}
             </span>
           </div>
+          <span className="text-sm text-gray-500" title="Online now">
+            🟢 {onlineCount} online
+          </span>
         </div>
 
         <div className="flex items-center gap-2">
@@ -744,6 +862,16 @@ const ChatRoom: React.FC = () => {
           scrollbarWidth: "thin",
         }}
       >
+        {nextCursor && (
+          <div className="flex justify-center">
+            <button
+              className="px-3 py-1 text-xs bg-gray-200 rounded-full border border-black transition-all duration-200 hover:scale-105 hover:bg-gray-300 cursor-pointer"
+              onClick={loadOlderMessages}
+            >
+              Load older messages
+            </button>
+          </div>
+        )}
         {messages.map((msg, idx) => (
           <ChatMessageComponent
             key={msg.id || idx}
@@ -794,6 +922,15 @@ const ChatRoom: React.FC = () => {
             <FiArrowDown size={28} />
           </button>
         )}
+        {typingUsers.length > 0 && (
+          <div className="text-xs text-gray-500 mb-1">
+            {typingUsers.length > 3
+              ? "Several people are typing..."
+              : `${typingUsers.join(", ")} ${
+                  typingUsers.length === 1 ? "is" : "are"
+                } typing...`}
+          </div>
+        )}
         <div className="flex">
           <textarea
             ref={inputRef}
@@ -1,4 +1,5 @@
 import axios from "axios";
+import type { ChatMessage } from "../types";
 const BASE_URL = import.meta.env.VITE_BACKEND_URL || "http://localhost:8080/api";
 
 // const API_BASE_URL = import.meta.env.VITE_BACKEND_URL || "http://localhost:8080/api";
@@ -41,8 +42,10 @@ export const removeMember = async (groupName: string, targetMember: string) =>
 export const getGroupInfo = async (groupName: string) =>
   axios.get(`${BASE_URL}/group/${groupName}`);
 
-export const getGroupMessages = async (groupName: string) =>
-  axios.get(`${BASE_URL}/messages/${groupName}`).then((response) => {
+// one page of messages, oldest first: the latest page, or the page before a cursor;
+// nextCursor (the X-Next-Cursor header) loads the page before this one, null when there is none
+export const getGroupMessages = async (groupName: string, before?: string) =>
+  axios.get(`${BASE_URL}/messages/${groupName}`, { params: { before } }).then((response) => {
     let data = response.data;
     if (
       !Array.isArray(data) &&
@@ -57,7 +60,8 @@ export const getGroupMessages = async (groupName: string) =>
       }
     }
     if (!Array.isArray(data)) data = [];
-    return data;
+    const nextCursor: string | null = response.headers["x-next-cursor"] ?? null;
+    return { messages: data as ChatMessage[], nextCursor };
   });
 
 export const getGroupExpiryIn = async (groupName: string) =>
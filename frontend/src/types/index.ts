@@ -2,7 +2,7 @@ export interface ChatMessage {
   id?: number;
   sender: string;
   content: string;
-  type: "CHAT" | "JOIN" | "LEAVE" | "DELETE";
+  type: "CHAT" | "JOIN" | "LEAVE" | "DELETE" | "EXPIRED" | "RENAME";
   timestamp?: string;
   replyTo?: {
     sender: string;
@@ -19,6 +19,25 @@ export interface ChatMessageProps {
   username: string;
 }
 
+// pushed on /topic/group/{groupName}/expiry
+export interface GroupExpiry {
+  groupName: string;
+  minsLeft: number;
+  secondsLeft: number;
+  isExpired: boolean;
+  expiresAt: string;
+}
+
+// pushed on /topic/group/{groupName}/presence, users is only set on the snapshot sent on subscribe
+export interface GroupPresence {
+  groupName: string;
+  online: number;
+  users: string[] | null;
+  joined: string[];
+  left: string[];
+  typing: string[];
+}
+
 export interface ChatGroup {
   id: number;
   groupName: string;
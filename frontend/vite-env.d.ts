@@ -2,6 +2,7 @@
 
 interface ImportMetaEnv {
   readonly VITE_BACKEND_URL: string
+  readonly VITE_STOMP_BATCH?: string // "true" to receive coalesced frames
   // add more VITE_ vars here as needed
 }
 